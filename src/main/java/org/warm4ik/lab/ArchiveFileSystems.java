@@ -0,0 +1,229 @@
+package org.warm4ik.lab;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ArchiveFileSystems {
+    private static final Set<String> EXTENSIONS = Set.of("zip", "jar", "war", "ear");
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private static final class Handle {
+        final FileSystem fileSystem;
+        final long size;
+        final long modified;
+        int leases;
+        long lastUsed;
+
+        Handle(FileSystem fileSystem, long size, long modified) {
+            this.fileSystem = fileSystem;
+            this.size = size;
+            this.modified = modified;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    public final class Lease implements Closeable {
+        private final Path archive;
+        private final Handle handle;
+        private boolean released;
+
+        private Lease(Path archive, Handle handle) {
+            this.archive = archive;
+            this.handle = handle;
+        }
+
+        public Path root() {
+            return handle.fileSystem.getPath("/");
+        }
+
+        public Path resolve(Path displayPath) {
+            Path entry = root();
+            for (Path name : archive.relativize(displayPath.toAbsolutePath().normalize())) {
+                if (!name.toString().isEmpty()) entry = entry.resolve(name.toString());
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ArchiveFileSystems.this) {
+                if (released) return;
+                released = true;
+                handle.leases--;
+                handle.lastUsed = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private final Map<Path, Handle> open = new HashMap<>();
+    private final long idleMillis;
+
+    public ArchiveFileSystems() {
+        this(Long.getLong("explorer.archiveIdleSec", 60) * 1000);
+    }
+
+    public ArchiveFileSystems(long idleMillis) {
+        this.idleMillis = idleMillis;
+        ScheduledExecutorService closer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "archive-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleMillis / 2);
+        closer.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static boolean isArchive(FileEntry entry) {
+        return !entry.directory() && entry.path() != null
+                && entry.path().getFileSystem() == FileSystems.getDefault() && isArchiveName(entry.name());
+    }
+
+    public static boolean isArchiveName(String name) {
+        int dotIndex = name.lastIndexOf('.');
+        return dotIndex > 0 && EXTENSIONS.contains(name.substring(dotIndex + 1).toLowerCase(Locale.ROOT));
+    }
+
+    public Lease acquire(Path archive) throws IOException {
+        archive = archive.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(archive, BasicFileAttributes.class);
+        long modified = attrs.lastModifiedTime().toMillis();
+        FileSystem stale = null;
+        synchronized (this) {
+            Handle handle = open.get(archive);
+            if (handle != null && handle.leases == 0 && (handle.size != attrs.size() || handle.modified != modified)) {
+                open.remove(archive);
+                stale = handle.fileSystem;
+                handle = null;
+            }
+            if (handle != null) {
+                handle.leases++;
+                return new Lease(archive, handle);
+            }
+        }
+        closeQuietly(stale);
+        FileSystem fileSystem;
+        try {
+            fileSystem = FileSystems.newFileSystem(archive, (ClassLoader) null);
+        } catch (ProviderNotFoundException e) {
+            throw new IOException("Не удалось открыть архив: " + archive);
+        }
+        synchronized (this) {
+            Handle handle = open.get(archive);
+            if (handle == null) {
+                handle = new Handle(fileSystem, attrs.size(), modified);
+                open.put(archive, handle);
+                fileSystem = null;
+            }
+            handle.leases++;
+            Lease lease = new Lease(archive, handle);
+            if (fileSystem != null) closeQuietly(fileSystem);
+            return lease;
+        }
+    }
+
+    public void closeIdle() {
+        List<FileSystem> idle = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Handle> iterator = open.values().iterator();
+            while (iterator.hasNext()) {
+                Handle handle = iterator.next();
+                if (handle.leases == 0 && now - handle.lastUsed >= idleMillis) {
+                    idle.add(handle.fileSystem);
+                    iterator.remove();
+                }
+            }
+        }
+        idle.forEach(ArchiveFileSystems::closeQuietly);
+    }
+
+    public void release(Path path) {
+        Path prefix = path.toAbsolutePath().normalize();
+        List<FileSystem> released = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Path, Handle>> iterator = open.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, Handle> entry = iterator.next();
+                if (entry.getValue().leases == 0 && entry.getKey().startsWith(prefix)) {
+                    released.add(entry.getValue().fileSystem);
+                    iterator.remove();
+                }
+            }
+        }
+        released.forEach(ArchiveFileSystems::closeQuietly);
+    }
+
+    public synchronized int openCount() {
+        return open.size();
+    }
+
+    public long measure(Path entry) throws IOException {
+        long[] total = new long[1];
+        Files.walkFileTree(entry, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                total[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total[0];
+    }
+
+    public Path extract(Path entry, String name, Path targetDir, ProgressListener listener) throws IOException {
+        Path target = BatchEngine.uniqueTarget(targetDir, name, Set.of()).toAbsolutePath().normalize();
+        byte[] buffer = new byte[COPY_BUFFER];
+        Files.walkFileTree(entry, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(outputPath(target, entry, dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path output = outputPath(target, entry, file);
+                try (InputStream in = Files.newInputStream(file);
+                     OutputStream out = Files.newOutputStream(output)) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, read);
+                        listener.bytesProcessed(read);
+                    }
+                }
+                Files.setLastModifiedTime(output, attrs.lastModifiedTime());
+                listener.fileProcessed(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return target;
+    }
+
+    private static Path outputPath(Path target, Path entry, Path current) throws IOException {
+        Path output = target;
+        for (Path name : entry.relativize(current)) {
+            String part = name.toString().replace("/", "");
+            if (!part.isEmpty()) output = output.resolve(part);
+        }
+        output = output.normalize();
+        if (!output.startsWith(target)) {
+            throw new IOException("Недопустимый путь в архиве: " + current);
+        }
+        return output;
+    }
+
+    private static void closeQuietly(FileSystem fileSystem) {
+        if (fileSystem == null) return;
+        try {
+            fileSystem.close();
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+}
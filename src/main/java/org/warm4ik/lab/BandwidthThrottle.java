@@ -0,0 +1,46 @@
+package org.warm4ik.lab;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+public class BandwidthThrottle {
+    private static final long MAX_SLEEP_MS = 100;
+
+    private volatile long bytesPerSecond;
+    private long nextFreeNanos = System.nanoTime();
+
+    public BandwidthThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void acquire(long bytes, BooleanSupplier cancelled) {
+        long rate = bytesPerSecond;
+        if (rate <= 0 || bytes <= 0) return;
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextFreeNanos < now) nextFreeNanos = now;
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += bytes * 1_000_000_000L / rate;
+        }
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+            try {
+                Thread.sleep(Math.min(MAX_SLEEP_MS, Math.max(1, remaining / 1_000_000)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+    }
+}
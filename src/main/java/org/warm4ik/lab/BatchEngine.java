@@ -0,0 +1,217 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BatchEngine {
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    public enum Kind {COPY, MOVE, DELETE, TRASH}
+
+    public enum Action {RENAME, COPY, COPY_AND_DELETE, DELETE, TRASH}
+
+    public record Step(Path source, Path target, Action action) {
+    }
+
+    public record Plan(Kind kind, List<Step> steps, long totalBytes, long totalFiles, long skipped) {
+        public Set<Path> affectedDirectories() {
+            Set<Path> dirs = new LinkedHashSet<>();
+            for (Step step : steps) {
+                if (step.target() != null) dirs.add(step.target().getParent());
+                if (step.action() != Action.COPY) dirs.add(step.source().getParent());
+            }
+            dirs.remove(null);
+            return dirs;
+        }
+    }
+
+    private final CopyEngine copyEngine;
+    private final DeleteEngine deleteEngine;
+    private final TrashBin trashBin;
+    private final DirectorySizeCalculator sizeCalculator;
+    private final ExecutorService pool;
+
+    public BatchEngine(CopyEngine copyEngine, DeleteEngine deleteEngine, TrashBin trashBin,
+                       DirectorySizeCalculator sizeCalculator, int concurrency) {
+        this.copyEngine = copyEngine;
+        this.deleteEngine = deleteEngine;
+        this.trashBin = trashBin;
+        this.sizeCalculator = sizeCalculator;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread thread = new Thread(r, "batch-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Plan plan(Kind kind, List<Path> sources, Path targetDir) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        Set<Path> reserved = new HashSet<>();
+        Map<Path, FileStore> stores = new HashMap<>();
+        FileStore targetStore = targetDir != null ? Files.getFileStore(targetDir) : null;
+        long bytes = 0;
+        long files = 0;
+        long skipped = 0;
+        for (Path source : sources) {
+            source = source.toAbsolutePath().normalize();
+            if (kind == Kind.DELETE || kind == Kind.TRASH) {
+                Action action = kind == Kind.TRASH && trashBin != null ? Action.TRASH : Action.DELETE;
+                steps.add(new Step(source, null, action));
+                if (action == Action.DELETE) {
+                    DirectorySize size = sizeCalculator.calculate(source);
+                    bytes += size.bytes();
+                    files += size.files() + size.directories() + (Files.isDirectory(source) ? 1 : 0);
+                } else {
+                    files++;
+                }
+                continue;
+            }
+            Path target = targetDir.resolve(source.getFileName().toString());
+            if (kind == Kind.MOVE && target.equals(source)) {
+                skipped++;
+                continue;
+            }
+            if (targetDir.startsWith(source)) {
+                throw new IOException("Нельзя поместить папку в саму себя: " + source);
+            }
+            target = uniqueTarget(targetDir, source.getFileName().toString(), reserved);
+            reserved.add(target);
+            Action action = Action.COPY;
+            if (kind == Kind.MOVE) {
+                FileStore sourceStore = stores.computeIfAbsent(source.getParent(), BatchEngine::storeOf);
+                action = targetStore.equals(sourceStore) ? Action.RENAME : Action.COPY_AND_DELETE;
+            }
+            steps.add(new Step(source, target, action));
+            if (action == Action.RENAME) {
+                files++;
+            } else {
+                DirectorySize size = sizeCalculator.calculate(source);
+                bytes += size.bytes();
+                files += size.files();
+            }
+        }
+        steps.sort(Comparator.comparing((Step step) -> step.action() != Action.RENAME)
+                .thenComparing(step -> String.valueOf(step.target() != null ? step.target().getParent() : step.source().getParent())));
+        return new Plan(kind, steps, bytes, files, skipped);
+    }
+
+    public BatchReport execute(Plan plan, ProgressListener listener) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicLong completed = new AtomicLong();
+        AtomicInteger failureCount = new AtomicInteger();
+        Queue<BatchReport.Failure> failures = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (Step step : plan.steps()) {
+            Runnable task = () -> {
+                if (cancelled.get()) return;
+                try {
+                    run(step, listener);
+                    completed.incrementAndGet();
+                } catch (CancellationException e) {
+                    cancelled.set(true);
+                } catch (IOException | RuntimeException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        cancelled.set(true);
+                        return;
+                    }
+                    if (failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+                        failures.add(new BatchReport.Failure(step.source(),
+                                e.getMessage() != null ? e.getMessage() : e.toString()));
+                    }
+                }
+            };
+            if (step.action() == Action.RENAME || step.action() == Action.TRASH) {
+                task.run();
+            } else {
+                futures.add(pool.submit(task));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                cancelled.set(true);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+            }
+        }
+        return new BatchReport(completed.get(), plan.skipped(), List.copyOf(failures), failureCount.get(), cancelled.get());
+    }
+
+    private void run(Step step, ProgressListener listener) throws IOException {
+        switch (step.action()) {
+            case RENAME -> {
+                try {
+                    Files.move(step.source(), step.target());
+                    listener.fileProcessed(step.target());
+                } catch (AtomicMoveNotSupportedException e) {
+                    copyAndDelete(step, listener);
+                } catch (DirectoryNotEmptyException e) {
+                    if (Files.exists(step.target(), LinkOption.NOFOLLOW_LINKS)
+                            || Objects.equals(storeOf(step.source()), storeOf(step.target().getParent()))) {
+                        throw e;
+                    }
+                    copyAndDelete(step, listener);
+                }
+            }
+            case COPY -> copyEngine.copy(step.source(), step.target(), listener);
+            case COPY_AND_DELETE -> copyAndDelete(step, listener);
+            case DELETE -> {
+                DeleteReport report = deleteEngine.delete(step.source(), listener);
+                if (report.cancelled()) throw new CancellationException();
+                if (!report.isSuccess()) {
+                    throw new IOException("не удалось удалить " + report.failureCount() + " объектов");
+                }
+            }
+            case TRASH -> {
+                try {
+                    trashBin.moveToTrash(step.source());
+                } catch (IOException e) {
+                    throw new IOException("не удалось переместить в корзину: " + e.getMessage(), e);
+                }
+                listener.fileProcessed(step.source());
+            }
+        }
+    }
+
+    private void copyAndDelete(Step step, ProgressListener listener) throws IOException {
+        copyEngine.copy(step.source(), step.target(), listener);
+        DeleteReport report = deleteEngine.delete(step.source(), ProgressListener.NONE);
+        if (!report.isSuccess()) {
+            throw new IOException("скопировано, но не удалено из источника: " + report.failureCount() + " объектов");
+        }
+    }
+
+    private static FileStore storeOf(Path dir) {
+        try {
+            return Files.getFileStore(dir);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static Path uniqueTarget(Path targetDir, String originalName, Set<Path> reserved) {
+        Path dest = targetDir.resolve(originalName);
+        if (!Files.exists(dest, LinkOption.NOFOLLOW_LINKS) && !reserved.contains(dest)) {
+            return dest;
+        }
+        String baseName = originalName;
+        String extension = "";
+        int dotIndex = originalName.lastIndexOf('.');
+        if (dotIndex > 0) {
+            baseName = originalName.substring(0, dotIndex);
+            extension = originalName.substring(dotIndex);
+        }
+        int copyNum = 1;
+        while (Files.exists(dest, LinkOption.NOFOLLOW_LINKS) || reserved.contains(dest)) {
+            dest = targetDir.resolve(String.format("%s - Копия (%d)%s", baseName, copyNum, extension));
+            copyNum++;
+        }
+        return dest;
+    }
+}
@@ -0,0 +1,39 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public record BatchReport(long completed, long skipped, List<Failure> failures, long failureCount, boolean cancelled) {
+    public record Failure(Path path, String reason) {
+    }
+
+    public BatchReport merge(BatchReport other) {
+        List<Failure> merged = new ArrayList<>(failures);
+        merged.addAll(other.failures);
+        return new BatchReport(completed + other.completed, skipped + other.skipped, merged,
+                failureCount + other.failureCount, cancelled || other.cancelled);
+    }
+
+    public boolean isSuccess() {
+        return failureCount == 0 && !cancelled;
+    }
+
+    public String summary() {
+        StringBuilder text = new StringBuilder();
+        text.append("Выполнено: ").append(completed);
+        if (skipped > 0) text.append(", пропущено: ").append(skipped);
+        text.append("\n");
+        if (cancelled) text.append("Операция отменена\n");
+        if (failureCount > 0) {
+            text.append("Ошибок: ").append(failureCount).append("\n");
+            for (Failure failure : failures) {
+                text.append(failure.path()).append(" — ").append(failure.reason()).append("\n");
+            }
+            if (failureCount > failures.size()) {
+                text.append("... и еще ").append(failureCount - failures.size()).append("\n");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package org.warm4ik.lab;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+final class ChildList {
+    static final int DIRECTORY = 1;
+    static final int HIDDEN = 2;
+    static final int ARCHIVE = 4;
+    private static final int HASH_THRESHOLD = 16;
+
+    private byte[] names = new byte[64];
+    private int[] offsets = new int[5];
+    private int[] flags = new int[4];
+    private int size = 0;
+    private int[] table = null;
+
+    int size() {
+        return size;
+    }
+
+    String nameAt(int index) {
+        return new String(names, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    int flagsAt(int index) {
+        return flags[index];
+    }
+
+    void add(String name, int entryFlags) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int end = offsets[size];
+        ensureCapacity(size + 1, end + bytes.length);
+        System.arraycopy(bytes, 0, names, end, bytes.length);
+        flags[size] = entryFlags;
+        offsets[size + 1] = end + bytes.length;
+        size++;
+        if (table != null) {
+            if (size * 2 > table.length) table = null;
+            else insertSlot(size - 1);
+        }
+    }
+
+    void remove(int index) {
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        System.arraycopy(names, start + length, names, start, offsets[size] - start - length);
+        for (int i = index + 1; i <= size; i++) {
+            offsets[i - 1] = offsets[i] - length;
+        }
+        System.arraycopy(flags, index + 1, flags, index, size - index - 1);
+        size--;
+        table = null;
+    }
+
+    void set(int index, String name, int entryFlags) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int start = offsets[index];
+        int delta = bytes.length - (offsets[index + 1] - start);
+        ensureCapacity(size, offsets[size] + Math.max(0, delta));
+        System.arraycopy(names, offsets[index + 1], names, offsets[index + 1] + delta, offsets[size] - offsets[index + 1]);
+        System.arraycopy(bytes, 0, names, start, bytes.length);
+        for (int i = index + 1; i <= size; i++) {
+            offsets[i] += delta;
+        }
+        flags[index] = entryFlags;
+        table = null;
+    }
+
+    int indexOf(String name, int hint) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (hint >= 0 && hint < size && nameEquals(hint, bytes)) return hint;
+        if (size < HASH_THRESHOLD) {
+            for (int i = 0; i < size; i++) {
+                if (nameEquals(i, bytes)) return i;
+            }
+            return -1;
+        }
+        if (table == null) rebuildTable();
+        int mask = table.length - 1;
+        for (int slot = hash(bytes, 0, bytes.length) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (nameEquals(table[slot] - 1, bytes)) return table[slot] - 1;
+        }
+        return -1;
+    }
+
+    private void rebuildTable() {
+        table = new int[Integer.highestOneBit(Math.max(size, 8) * 4 - 1)];
+        for (int i = 0; i < size; i++) {
+            insertSlot(i);
+        }
+    }
+
+    private void insertSlot(int index) {
+        int mask = table.length - 1;
+        int slot = hash(names, offsets[index], offsets[index + 1]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean nameEquals(int index, byte[] bytes) {
+        int start = offsets[index];
+        return Arrays.equals(names, start, offsets[index + 1], bytes, 0, bytes.length);
+    }
+
+    long estimatedBytes() {
+        return 16L + 4 * 16 + names.length + 4L * offsets.length + 4L * flags.length
+                + (table != null ? 4L * table.length : 0);
+    }
+
+    void trim() {
+        names = Arrays.copyOf(names, offsets[size]);
+        offsets = Arrays.copyOf(offsets, size + 1);
+        flags = Arrays.copyOf(flags, size);
+    }
+
+    private void ensureCapacity(int count, int byteCount) {
+        if (flags.length < count) {
+            int capacity = Math.max(count, flags.length + (flags.length >> 1));
+            flags = Arrays.copyOf(flags, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        if (names.length < byteCount) {
+            names = Arrays.copyOf(names, Math.max(byteCount, names.length + (names.length >> 1)));
+        }
+    }
+}
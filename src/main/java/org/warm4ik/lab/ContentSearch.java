@@ -0,0 +1,278 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ContentSearch {
+    private static final int BINARY_PROBE = 8192;
+    private static final int MAX_LINE_CHARS = 300;
+    private static final int CANCEL_CHECK_MASK = (1 << 20) - 1;
+    private static final int PATTERN_WINDOW = 1 << 20;
+    private static final Path END = Paths.get("");
+
+    public record Query(String text, boolean regex, boolean ignoreCase) {
+    }
+
+    public record Match(Path file, long line, String text) {
+    }
+
+    private final int workers;
+    private final long maxFileSize;
+    private final int maxMatches;
+    private final int queueCapacity;
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "grep-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ContentSearch() {
+        this(Integer.getInteger("explorer.grepThreads", Math.max(2, Runtime.getRuntime().availableProcessors())),
+                Long.getLong("explorer.grepMaxFileMb", 256) * 1024 * 1024,
+                Integer.getInteger("explorer.grepMaxMatches", 10_000),
+                1024);
+    }
+
+    public ContentSearch(int workers, long maxFileSize, int maxMatches, int queueCapacity) {
+        this.workers = workers;
+        this.maxFileSize = Math.min(maxFileSize, Integer.MAX_VALUE);
+        this.maxMatches = maxMatches;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int search(Path root, Query query, Consumer<Match> sink, BooleanSupplier cancelled) throws IOException {
+        byte[] literal = literalBytes(query);
+        Pattern pattern = literal == null ? compile(query) : null;
+        BlockingQueue<Path> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger matches = new AtomicInteger();
+        BooleanSupplier halted = () -> stop.get() || cancelled.getAsBoolean();
+        Consumer<Match> emit = match -> {
+            int n = matches.incrementAndGet();
+            if (n <= maxMatches) sink.accept(match);
+            if (n >= maxMatches) stop.set(true);
+        };
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(pool.submit(() -> {
+                while (true) {
+                    Path file = queue.take();
+                    if (file == END) return null;
+                    if (!halted.getAsBoolean()) scan(file, literal, query.ignoreCase(), pattern, emit, halted);
+                }
+            }));
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || attrs.size() == 0 || attrs.size() > maxFileSize) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        while (!queue.offer(file, 50, TimeUnit.MILLISECONDS)) {
+                            if (halted.getAsBoolean()) return FileVisitResult.TERMINATE;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return halted.getAsBoolean() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return halted.getAsBoolean() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            boolean interrupted = Thread.interrupted();
+            if (interrupted) stop.set(true);
+            for (int i = 0; i < workers; i++) {
+                putUninterruptibly(queue, END);
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException ignored) {
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        return Math.min(matches.get(), maxMatches);
+    }
+
+    private static void putUninterruptibly(BlockingQueue<Path> queue, Path path) {
+        while (true) {
+            try {
+                queue.put(path);
+                return;
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    private static byte[] literalBytes(Query query) {
+        if (query.regex()) return null;
+        if (query.ignoreCase() && !query.text().chars().allMatch(c -> c < 128)) return null;
+        byte[] bytes = query.text().getBytes(StandardCharsets.UTF_8);
+        if (query.ignoreCase()) {
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = lower(bytes[i]);
+            }
+        }
+        return bytes;
+    }
+
+    private static Pattern compile(Query query) {
+        int flags = Pattern.MULTILINE | (query.ignoreCase() ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        return Pattern.compile(query.regex() ? query.text() : Pattern.quote(query.text()), flags);
+    }
+
+    private void scan(Path file, byte[] literal, boolean ignoreCase, Pattern pattern,
+                      Consumer<Match> emit, BooleanSupplier halted) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > maxFileSize) return;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (isBinary(buffer)) return;
+            if (literal != null) {
+                scanLiteral(file, buffer, literal, ignoreCase, emit, halted);
+            } else {
+                scanPattern(file, buffer, pattern, emit, halted);
+            }
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    private static boolean isBinary(ByteBuffer buffer) {
+        int probe = Math.min(buffer.limit(), BINARY_PROBE);
+        for (int i = 0; i < probe; i++) {
+            if (buffer.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    private static void scanLiteral(Path file, ByteBuffer buffer, byte[] literal, boolean ignoreCase,
+                                    Consumer<Match> emit, BooleanSupplier halted) {
+        if (literal.length == 0) return;
+        int last = buffer.limit() - literal.length;
+        byte first = literal[0];
+        long line = 1;
+        int counted = 0;
+        for (int i = 0; i <= last; i++) {
+            if ((i & CANCEL_CHECK_MASK) == 0 && halted.getAsBoolean()) return;
+            byte b = buffer.get(i);
+            if ((ignoreCase ? lower(b) : b) != first || !regionMatches(buffer, i, literal, ignoreCase)) continue;
+            line += countLines(buffer, counted, i);
+            counted = i;
+            int end = lineEnd(buffer, i);
+            emit.accept(new Match(file, line, lineText(buffer, lineStart(buffer, i), end)));
+            if (halted.getAsBoolean()) return;
+            i = end;
+        }
+    }
+
+    private static void scanPattern(Path file, ByteBuffer buffer, Pattern pattern,
+                                    Consumer<Match> emit, BooleanSupplier halted) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        long line = 1;
+        for (int offset = 0; offset < buffer.limit(); ) {
+            if (halted.getAsBoolean()) return;
+            int windowEnd = windowEnd(buffer, offset);
+            CharBuffer text = decoder.decode(buffer.slice(offset, windowEnd - offset));
+            Matcher matcher = pattern.matcher(text);
+            long windowLine = line;
+            int counted = 0;
+            int from = 0;
+            while (from <= text.length() && matcher.find(from)) {
+                int position = matcher.start();
+                for (int i = counted; i < position; i++) {
+                    if (text.charAt(i) == '\n') windowLine++;
+                }
+                counted = position;
+                int start = position;
+                while (start > 0 && text.charAt(start - 1) != '\n') start--;
+                int end = position;
+                while (end < text.length() && text.charAt(end) != '\n') end++;
+                String lineText = text.subSequence(start, Math.min(end, start + MAX_LINE_CHARS)).toString();
+                emit.accept(new Match(file, windowLine, lineText.stripTrailing()));
+                if (halted.getAsBoolean()) return;
+                from = end + 1;
+            }
+            line += countLines(buffer, offset, windowEnd);
+            offset = windowEnd;
+        }
+    }
+
+    private static int windowEnd(ByteBuffer buffer, int offset) {
+        int end = (int) Math.min(buffer.limit(), (long) offset + PATTERN_WINDOW);
+        if (end == buffer.limit()) return end;
+        int cut = end;
+        while (cut > offset && buffer.get(cut - 1) != '\n') cut--;
+        return cut > offset ? cut : end;
+    }
+
+    private static boolean regionMatches(ByteBuffer buffer, int offset, byte[] literal, boolean ignoreCase) {
+        for (int j = 1; j < literal.length; j++) {
+            byte b = buffer.get(offset + j);
+            if ((ignoreCase ? lower(b) : b) != literal[j]) return false;
+        }
+        return true;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private static long countLines(ByteBuffer buffer, int from, int to) {
+        long lines = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') lines++;
+        }
+        return lines;
+    }
+
+    private static int lineStart(ByteBuffer buffer, int position) {
+        while (position > 0 && buffer.get(position - 1) != '\n') position--;
+        return position;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int position) {
+        while (position < buffer.limit() && buffer.get(position) != '\n') position++;
+        return position;
+    }
+
+    private static String lineText(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[Math.min(end - start, MAX_LINE_CHARS)];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8).stripTrailing();
+    }
+}
@@ -0,0 +1,167 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.PatternSyntaxException;
+
+public class ContentSearchDialog extends JDialog {
+    private static final String[] COLUMNS = {"Файл", "Строка", "Текст"};
+
+    private final FileExplorer fileOps;
+    private final File directory;
+    private final JTextField queryField = new JTextField(30);
+    private final JCheckBox regexBox = new JCheckBox("Регулярное выражение");
+    private final JCheckBox ignoreCaseBox = new JCheckBox("Без учета регистра", true);
+    private final JButton searchButton = new JButton("Найти");
+    private final JButton stopButton = new JButton("Остановить");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final MatchesTableModel tableModel = new MatchesTableModel();
+    private final JTable table = new JTable(tableModel);
+    private SwingWorker<Integer, ContentSearch.Match> activeSearch;
+
+    public ContentSearchDialog(Frame owner, FileExplorer fileOps, File directory, Consumer<Path> onOpen) {
+        super(owner, "Поиск в содержимом: " + directory.getAbsolutePath(), false);
+        this.fileOps = fileOps;
+        this.directory = directory;
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Текст:"));
+        top.add(queryField);
+        top.add(regexBox);
+        top.add(ignoreCaseBox);
+        top.add(searchButton);
+        top.add(stopButton);
+        add(top, BorderLayout.NORTH);
+
+        stopButton.setEnabled(false);
+        searchButton.addActionListener(e -> startSearch());
+        queryField.addActionListener(e -> startSearch());
+        stopButton.addActionListener(e -> stopSearch());
+
+        table.getColumnModel().getColumn(0).setPreferredWidth(400);
+        table.getColumnModel().getColumn(1).setPreferredWidth(60);
+        table.getColumnModel().getColumn(2).setPreferredWidth(600);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0) {
+                    onOpen.accept(tableModel.matches.get(row).file());
+                }
+            }
+        });
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(statusLabel, BorderLayout.SOUTH);
+
+        setSize(1100, 600);
+        setLocationRelativeTo(owner);
+    }
+
+    @Override
+    public void dispose() {
+        stopSearch();
+        super.dispose();
+    }
+
+    private void startSearch() {
+        stopSearch();
+        String text = queryField.getText();
+        if (text.isEmpty()) return;
+        ContentSearch.Query query = new ContentSearch.Query(text, regexBox.isSelected(), ignoreCaseBox.isSelected());
+        tableModel.clear();
+        statusLabel.setText("Поиск...");
+        searchButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        long start = System.nanoTime();
+        activeSearch = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return fileOps.searchContent(directory, query, this::publish, this::isCancelled);
+            }
+
+            @Override
+            protected void process(List<ContentSearch.Match> chunks) {
+                if (isCancelled()) return;
+                tableModel.addAll(chunks);
+                statusLabel.setText("Поиск... найдено: " + tableModel.getRowCount());
+            }
+
+            @Override
+            protected void done() {
+                searchButton.setEnabled(true);
+                stopButton.setEnabled(false);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (isCancelled()) {
+                    statusLabel.setText(String.format("Остановлено: найдено %d за %.2f с", tableModel.getRowCount(), seconds));
+                    return;
+                }
+                try {
+                    statusLabel.setText(String.format("Найдено совпадений: %d за %.2f с", get(), seconds));
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    statusLabel.setText(cause instanceof PatternSyntaxException
+                            ? "Некорректное регулярное выражение: " + cause.getMessage()
+                            : "Ошибка поиска: " + cause.getMessage());
+                }
+            }
+        };
+        activeSearch.execute();
+    }
+
+    private void stopSearch() {
+        if (activeSearch != null && !activeSearch.isDone()) {
+            activeSearch.cancel(true);
+        }
+    }
+
+    private static class MatchesTableModel extends AbstractTableModel {
+        private final List<ContentSearch.Match> matches = new ArrayList<>();
+
+        void clear() {
+            matches.clear();
+            fireTableDataChanged();
+        }
+
+        void addAll(List<ContentSearch.Match> chunk) {
+            int first = matches.size();
+            matches.addAll(chunk);
+            fireTableRowsInserted(first, matches.size() - 1);
+        }
+
+        @Override
+        public int getRowCount() {
+            return matches.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ContentSearch.Match match = matches.get(row);
+            return switch (column) {
+                case 0 -> match.file().toString();
+                case 1 -> match.line();
+                case 2 -> match.text();
+                default -> "";
+            };
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CopyEngine {
+    private final ThreadPoolExecutor pool;
+    private final long largeFileThreshold;
+    private final long transferChunk;
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    public CopyEngine() {
+        this(Integer.getInteger("explorer.copyThreads", Math.max(4, Runtime.getRuntime().availableProcessors())),
+                Long.getLong("explorer.copyLargeFile", 4L * 1024 * 1024),
+                Integer.getInteger("explorer.copyBuffer", 256 * 1024),
+                Long.getLong("explorer.copyChunk", 16L * 1024 * 1024));
+    }
+
+    public CopyEngine(int threads, long largeFileThreshold, int bufferSize, long transferChunk) {
+        this.largeFileThreshold = largeFileThreshold;
+        this.transferChunk = transferChunk;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4), r -> {
+            Thread thread = new Thread(r, "copy-worker");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    public void copy(Path source, Path target, ProgressListener listener) throws IOException {
+        BasicFileAttributes rootAttrs = Files.readAttributes(source, BasicFileAttributes.class);
+        if (!rootAttrs.isDirectory()) {
+            copyFile(source, target, rootAttrs, listener);
+            return;
+        }
+        if (target.toAbsolutePath().normalize().startsWith(source.toAbsolutePath().normalize())) {
+            throw new IOException("Нельзя скопировать папку в саму себя: " + source);
+        }
+        Phaser pending = new Phaser(1);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        try {
+            walk(source, target, listener, pending, failure);
+        } finally {
+            pending.arriveAndAwaitAdvance();
+        }
+        if (failure.get() != null) throw failure.get();
+    }
+
+    private void walk(Path source, Path target, ProgressListener listener, Phaser pending,
+                      AtomicReference<IOException> failure) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Path targetFile = target.resolve(source.relativize(file).toString());
+                pending.register();
+                pool.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            copyFile(file, targetFile, attrs, listener);
+                        }
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, new IOException(e));
+                    } finally {
+                        pending.arriveAndDeregister();
+                    }
+                });
+                return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+        });
+    }
+
+    private void copyFile(Path source, Path target, BasicFileAttributes attrs, ProgressListener listener)
+            throws IOException {
+        if (!attrs.isRegularFile()) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } else if (attrs.size() >= largeFileThreshold) {
+            transferLarge(source, target, attrs.size(), listener);
+        } else {
+            copySmall(source, target, listener);
+        }
+        listener.fileProcessed(source);
+    }
+
+    private void transferLarge(Path source, Path target, long size, ProgressListener listener) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, Math.min(transferChunk, size - position), out);
+                if (transferred <= 0) break;
+                position += transferred;
+                listener.bytesProcessed(transferred);
+            }
+        }
+    }
+
+    private void copySmall(Path source, Path target, ProgressListener listener) throws IOException {
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.clear();
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                int bytes = buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                listener.bytesProcessed(bytes);
+                buffer.clear();
+            }
+        }
+    }
+}
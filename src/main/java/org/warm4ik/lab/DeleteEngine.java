@@ -0,0 +1,163 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DeleteEngine {
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    private final ForkJoinPool pool;
+
+    public DeleteEngine() {
+        this(Integer.getInteger("explorer.deleteParallelism", Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    public DeleteEngine(int parallelism) {
+        this(parallelism, Thread.NORM_PRIORITY);
+    }
+
+    public DeleteEngine(int parallelism, int threadPriority) {
+        pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setPriority(threadPriority);
+            return thread;
+        }, null, false);
+    }
+
+    public DeleteReport delete(Path root, ProgressListener listener) {
+        Operation operation = new Operation(listener);
+        pool.invoke(new DeleteTask(root, null, operation));
+        return operation.report();
+    }
+
+    private static class Operation {
+        final ProgressListener listener;
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final LongAdder files = new LongAdder();
+        final LongAdder directories = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final ConcurrentLinkedQueue<DeleteReport.Failure> failures = new ConcurrentLinkedQueue<>();
+        final AtomicInteger failureCount = new AtomicInteger();
+
+        Operation(ProgressListener listener) {
+            this.listener = listener;
+        }
+
+        void deleted(Path path, BasicFileAttributes attrs) {
+            if (attrs.isDirectory()) {
+                directories.increment();
+            } else {
+                files.increment();
+                bytes.add(attrs.size());
+            }
+            try {
+                if (!attrs.isDirectory()) listener.bytesProcessed(attrs.size());
+                listener.fileProcessed(path);
+            } catch (CancellationException e) {
+                cancelled.set(true);
+            }
+        }
+
+        void failed(Path path, IOException e) {
+            if (failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+                failures.add(new DeleteReport.Failure(path, describe(e)));
+            }
+        }
+
+        DeleteReport report() {
+            return new DeleteReport(files.sum(), directories.sum(), bytes.sum(),
+                    List.copyOf(failures), failureCount.get(), cancelled.get());
+        }
+    }
+
+    private static String describe(IOException e) {
+        if (e instanceof AccessDeniedException) return "Доступ запрещен";
+        if (e instanceof DirectoryNotEmptyException) return "Папка не пуста";
+        if (e instanceof FileSystemException fse && fse.getReason() != null) return fse.getReason();
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static class DeleteTask extends RecursiveTask<Boolean> {
+        private final Path path;
+        private final Operation operation;
+        private BasicFileAttributes attrs;
+        private boolean complete = true;
+
+        DeleteTask(Path path, BasicFileAttributes attrs, Operation operation) {
+            this.path = path;
+            this.attrs = attrs;
+            this.operation = operation;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (operation.cancelled.get()) return false;
+            try {
+                if (attrs == null) {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                }
+                if (attrs.isDirectory()) {
+                    deleteChildren();
+                }
+                if (!complete || operation.cancelled.get()) return false;
+                Files.delete(path);
+                operation.deleted(path, attrs);
+                return true;
+            } catch (NoSuchFileException e) {
+                return true;
+            } catch (IOException e) {
+                operation.failed(path, e);
+                return false;
+            }
+        }
+
+        private void deleteChildren() throws IOException {
+            List<DeleteTask> subtasks = new ArrayList<>();
+            Files.walkFileTree(path, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes fileAttrs) {
+                    if (operation.cancelled.get()) return FileVisitResult.TERMINATE;
+                    if (fileAttrs.isDirectory()) {
+                        DeleteTask subtask = new DeleteTask(file, fileAttrs, operation);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        Files.delete(file);
+                        operation.deleted(file, fileAttrs);
+                    } catch (NoSuchFileException ignored) {
+                    } catch (IOException e) {
+                        operation.failed(file, e);
+                        complete = false;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (!(e instanceof NoSuchFileException)) {
+                        operation.failed(file, e);
+                        complete = false;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (int i = subtasks.size() - 1; i >= 0; i--) {
+                complete &= subtasks.get(i).join();
+            }
+        }
+    }
+}
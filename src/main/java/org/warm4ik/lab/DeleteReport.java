@@ -0,0 +1,32 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record DeleteReport(long deletedFiles, long deletedDirectories, long freedBytes,
+                           List<Failure> failures, long failureCount, boolean cancelled) {
+    public record Failure(Path path, String reason) {
+    }
+
+    public boolean isSuccess() {
+        return failureCount == 0 && !cancelled;
+    }
+
+    public String summary() {
+        StringBuilder text = new StringBuilder();
+        text.append("Удалено файлов: ").append(deletedFiles)
+                .append(", папок: ").append(deletedDirectories)
+                .append(String.format(", освобождено: %.2f МБ", freedBytes / (1024.0 * 1024.0))).append("\n");
+        if (cancelled) text.append("Операция отменена\n");
+        if (failureCount > 0) {
+            text.append("Не удалось удалить: ").append(failureCount).append("\n");
+            for (Failure failure : failures) {
+                text.append(failure.path()).append(" — ").append(failure.reason()).append("\n");
+            }
+            if (failureCount > failures.size()) {
+                text.append("... и еще ").append(failureCount - failures.size()).append("\n");
+            }
+        }
+        return text.toString();
+    }
+}
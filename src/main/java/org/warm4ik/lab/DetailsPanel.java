@@ -0,0 +1,330 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableColumn;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class DetailsPanel extends JPanel {
+    private static final int PREFETCH_ROWS = Integer.getInteger("explorer.detailsPrefetch", 200);
+    private static final int FILL_CHUNK = 2048;
+    private static final int LIST_CHUNK_SIZE = 4096;
+
+    private final DetailsTableModel model = new DetailsTableModel();
+    private final JTable table = new JTable(model);
+    private final JLabel titleLabel = new JLabel(" ");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final ExecutorService attributes = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "details-attributes");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong visibleRequests = new AtomicLong();
+    private SwingWorker<Void, List<String>> loader;
+    private SwingWorker<int[], Void> sorter;
+    private Path directory;
+    private boolean listed;
+    private int pendingSortColumn = -1;
+    private boolean pendingAscending;
+    private boolean sortedWithoutAttributes;
+    private long sortMillis = -1;
+
+    public DetailsPanel(Consumer<Path> onOpen) {
+        super(new BorderLayout());
+        table.setAutoCreateRowSorter(false);
+        table.setFillsViewportHeight(true);
+        table.setShowGrid(false);
+        table.setDefaultRenderer(Object.class, new DetailsRenderer());
+        int[] widths = {320, 90, 120, 120};
+        for (int i = 0; i < widths.length; i++) {
+            table.getColumnModel().getColumn(i).setPreferredWidth(widths[i]);
+        }
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (column < 0) return;
+                boolean ascending = column != model.getSortColumn() || !model.isAscending();
+                sortBy(column, ascending);
+            }
+        });
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() != 2 || directory == null) return;
+                int row = table.rowAtPoint(e.getPoint());
+                if (row >= 0) onOpen.accept(directory.resolve(model.nameAt(row)));
+            }
+        });
+        model.addTableModelListener(e -> requestVisible());
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.getViewport().addChangeListener(e -> requestVisible());
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(titleLabel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    public void show(Path dir) {
+        if (dir.equals(directory)) return;
+        directory = dir;
+        if (loader != null) loader.cancel(true);
+        if (sorter != null) sorter.cancel(true);
+        long current = generation.incrementAndGet();
+        listed = false;
+        pendingSortColumn = -1;
+        sortedWithoutAttributes = false;
+        sortMillis = -1;
+        model.clear();
+        updateHeaders();
+        titleLabel.setText(dir.toString());
+        statusLabel.setText("Чтение папки...");
+        loader = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                List<String> chunk = new ArrayList<>(LIST_CHUNK_SIZE);
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path child : stream) {
+                        if (isCancelled()) return null;
+                        chunk.add(child.getFileName().toString());
+                        if (chunk.size() >= LIST_CHUNK_SIZE) {
+                            publish(chunk);
+                            chunk = new ArrayList<>(LIST_CHUNK_SIZE);
+                        }
+                    }
+                } catch (DirectoryIteratorException e) {
+                    throw e.getCause();
+                }
+                if (!chunk.isEmpty()) publish(chunk);
+                return null;
+            }
+
+            @Override
+            protected void process(List<List<String>> chunks) {
+                if (generation.get() != current) return;
+                for (List<String> chunk : chunks) {
+                    model.append(chunk);
+                }
+                updateStatus();
+            }
+
+            @Override
+            protected void done() {
+                if (generation.get() != current || isCancelled()) return;
+                try {
+                    get();
+                } catch (Exception e) {
+                    statusLabel.setText("Ошибка чтения папки: " + e.getMessage());
+                    return;
+                }
+                listed = true;
+                fill(current, dir, model.snapshot().names(), 0);
+                runPendingSort();
+                updateStatus();
+            }
+        };
+        loader.execute();
+    }
+
+    private void requestVisible() {
+        Path dir = directory;
+        if (dir == null || model.getRowCount() == 0) return;
+        Rectangle visible = table.getVisibleRect();
+        int first = table.rowAtPoint(visible.getLocation());
+        int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (first < 0) first = 0;
+        if (last < 0) last = model.getRowCount() - 1;
+        first = Math.max(0, first - PREFETCH_ROWS);
+        last = Math.min(model.getRowCount() - 1, last + PREFETCH_ROWS);
+        int[] indices = new int[last - first + 1];
+        String[] names = new String[indices.length];
+        int length = 0;
+        for (int row = first; row <= last; row++) {
+            int index = model.indexAt(row);
+            if (model.isLoaded(index)) continue;
+            indices[length] = index;
+            names[length++] = model.nameOf(index);
+        }
+        if (length == 0) return;
+        long current = generation.get();
+        long request = visibleRequests.incrementAndGet();
+        int count = length;
+        attributes.execute(() -> {
+            if (generation.get() != current || visibleRequests.get() != request) return;
+            read(current, dir, indices, names, count);
+        });
+    }
+
+    private void fill(long current, Path dir, String[] names, int from) {
+        attributes.execute(() -> {
+            if (generation.get() != current) return;
+            int to = Math.min(names.length, from + FILL_CHUNK);
+            int[] indices = new int[to - from];
+            String[] chunk = new String[to - from];
+            for (int i = from; i < to; i++) {
+                indices[i - from] = i;
+                chunk[i - from] = names[i];
+            }
+            read(current, dir, indices, chunk, indices.length);
+            if (to < names.length) fill(current, dir, names, to);
+        });
+    }
+
+    private void read(long current, Path dir, int[] indices, String[] names, int length) {
+        boolean dos = dir.getFileSystem().supportedFileAttributeViews().contains("dos");
+        long[] sizes = new long[length];
+        long[] modified = new long[length];
+        byte[] flags = new byte[length];
+        for (int i = 0; i < length; i++) {
+            if (generation.get() != current) return;
+            Path path = dir.resolve(names[i]);
+            byte flag = 0;
+            try {
+                BasicFileAttributes attrs;
+                if (dos) {
+                    DosFileAttributes dosAttrs = Files.readAttributes(path, DosFileAttributes.class);
+                    if (dosAttrs.isHidden()) flag |= DetailsTableModel.HIDDEN;
+                    attrs = dosAttrs;
+                } else {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isSymbolicLink()) {
+                        try {
+                            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                        } catch (IOException ignored) {
+                        }
+                    }
+                    if (names[i].startsWith(".")) flag |= DetailsTableModel.HIDDEN;
+                }
+                if (attrs.isDirectory()) flag |= DetailsTableModel.DIRECTORY;
+                sizes[i] = attrs.isDirectory() ? 0 : attrs.size();
+                modified[i] = attrs.lastModifiedTime().toMillis();
+            } catch (IOException e) {
+                if (!dos && names[i].startsWith(".")) flag |= DetailsTableModel.HIDDEN;
+            }
+            flags[i] = flag;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (generation.get() != current) return;
+            model.applyAttributes(indices, sizes, modified, flags, length);
+            runPendingSort();
+            resortWithAttributes();
+            updateStatus();
+        });
+    }
+
+    private boolean canSort(int column) {
+        return listed && (column == DetailsTableModel.NAME || model.loadedCount() == model.getRowCount());
+    }
+
+    private void runPendingSort() {
+        if (pendingSortColumn < 0 || !canSort(pendingSortColumn)) return;
+        int column = pendingSortColumn;
+        pendingSortColumn = -1;
+        sortBy(column, pendingAscending);
+    }
+
+    private void resortWithAttributes() {
+        if (!sortedWithoutAttributes || model.loadedCount() < model.getRowCount()) return;
+        sortedWithoutAttributes = false;
+        sortBy(model.getSortColumn(), model.isAscending());
+    }
+
+    private void sortBy(int column, boolean ascending) {
+        if (directory == null) return;
+        if (!canSort(column)) {
+            pendingSortColumn = column;
+            pendingAscending = ascending;
+            updateStatus();
+            return;
+        }
+        if (sorter != null) sorter.cancel(true);
+        long current = generation.get();
+        DetailsTableModel.Snapshot snapshot = model.snapshot();
+        boolean partial = model.loadedCount() < snapshot.count();
+        statusLabel.setText("Сортировка...");
+        sorter = new SwingWorker<>() {
+            private long started;
+
+            @Override
+            protected int[] doInBackground() {
+                started = System.nanoTime();
+                return DetailsTableModel.sortedOrder(snapshot, column, ascending);
+            }
+
+            @Override
+            protected void done() {
+                if (generation.get() != current || isCancelled()) return;
+                try {
+                    int[] sorted = get();
+                    sortMillis = (System.nanoTime() - started) / 1_000_000;
+                    if (!model.applyOrder(sorted, column, ascending)) {
+                        sortBy(column, ascending);
+                        return;
+                    }
+                    sortedWithoutAttributes = partial;
+                    resortWithAttributes();
+                } catch (Exception e) {
+                    statusLabel.setText("Ошибка сортировки: " + e.getMessage());
+                    return;
+                }
+                updateHeaders();
+                updateStatus();
+            }
+        };
+        sorter.execute();
+    }
+
+    private void updateHeaders() {
+        for (int i = 0; i < model.getColumnCount(); i++) {
+            TableColumn column = table.getColumnModel().getColumn(table.convertColumnIndexToView(i));
+            String name = model.getColumnName(i);
+            column.setHeaderValue(i == model.getSortColumn() ? name + (model.isAscending() ? " ▲" : " ▼") : name);
+        }
+        table.getTableHeader().repaint();
+    }
+
+    private void updateStatus() {
+        int rows = model.getRowCount();
+        StringBuilder text = new StringBuilder("Объектов: ").append(rows).append(listed ? "" : "+");
+        if (model.loadedCount() < rows) {
+            text.append(String.format(", атрибуты: %.0f%%", 100.0 * model.loadedCount() / Math.max(1, rows)));
+        }
+        if (pendingSortColumn >= 0) {
+            text.append(listed ? ", сортировка после чтения атрибутов" : ", сортировка после чтения папки");
+        } else if (sortMillis >= 0) {
+            text.append(", сортировка: ").append(sortMillis).append(" мс");
+        }
+        statusLabel.setText(text.toString());
+    }
+
+    private class DetailsRenderer extends DefaultTableCellRenderer {
+        private final Icon directoryIcon = UIManager.getIcon("FileView.directoryIcon");
+        private final Icon fileIcon = UIManager.getIcon("FileView.fileIcon");
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean selected, boolean focused,
+                                                       int row, int column) {
+            super.getTableCellRendererComponent(table, value, selected, focused, row, column);
+            int modelColumn = table.convertColumnIndexToModel(column);
+            setHorizontalAlignment(modelColumn == DetailsTableModel.SIZE ? RIGHT : LEFT);
+            if (!selected) setForeground(model.isHidden(row) ? Color.GRAY : table.getForeground());
+            setIcon(modelColumn == DetailsTableModel.NAME ? (model.isDirectory(row) ? directoryIcon : fileIcon) : null);
+            return this;
+        }
+    }
+}
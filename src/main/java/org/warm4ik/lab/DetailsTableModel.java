@@ -0,0 +1,234 @@
+package org.warm4ik.lab;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public class DetailsTableModel extends AbstractTableModel {
+    public static final int NAME = 0;
+    public static final int SIZE = 1;
+    public static final int MODIFIED = 2;
+    public static final int TYPE = 3;
+    public static final byte DIRECTORY = 1;
+    public static final byte HIDDEN = 2;
+    public static final byte LOADED = 4;
+    private static final String[] COLUMNS = {"Имя", "Размер", "Изменён", "Тип"};
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")
+            .withZone(ZoneId.systemDefault());
+
+    public record Snapshot(String[] names, long[] sizes, long[] modified, byte[] flags, int count) {
+    }
+
+    private String[] names = new String[0];
+    private long[] sizes = new long[0];
+    private long[] modified = new long[0];
+    private byte[] flags = new byte[0];
+    private int[] order = new int[0];
+    private int[] rowOf = new int[0];
+    private int count = 0;
+    private int loaded = 0;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+
+    public void clear() {
+        names = new String[0];
+        sizes = new long[0];
+        modified = new long[0];
+        flags = new byte[0];
+        order = new int[0];
+        rowOf = new int[0];
+        count = 0;
+        loaded = 0;
+        sortColumn = -1;
+        ascending = true;
+        fireTableDataChanged();
+    }
+
+    public void append(List<String> chunk) {
+        if (chunk.isEmpty()) return;
+        int required = count + chunk.size();
+        if (required > names.length) {
+            int capacity = Math.max(required, names.length + (names.length >> 1) + 16);
+            names = Arrays.copyOf(names, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            modified = Arrays.copyOf(modified, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            order = Arrays.copyOf(order, capacity);
+            rowOf = Arrays.copyOf(rowOf, capacity);
+        }
+        int first = count;
+        for (String name : chunk) {
+            names[count] = name;
+            order[count] = count;
+            rowOf[count] = count;
+            count++;
+        }
+        fireTableRowsInserted(first, count - 1);
+    }
+
+    public void applyAttributes(int[] indices, long[] newSizes, long[] newModified, byte[] newFlags, int length) {
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = -1;
+        for (int i = 0; i < length; i++) {
+            int index = indices[i];
+            if (index >= count) continue;
+            if ((flags[index] & LOADED) == 0) loaded++;
+            sizes[index] = newSizes[i];
+            modified[index] = newModified[i];
+            flags[index] = (byte) (newFlags[i] | LOADED);
+            firstRow = Math.min(firstRow, rowOf[index]);
+            lastRow = Math.max(lastRow, rowOf[index]);
+        }
+        if (lastRow >= 0) fireTableRowsUpdated(firstRow, lastRow);
+    }
+
+    public int indexAt(int row) {
+        return order[row];
+    }
+
+    public boolean isLoaded(int index) {
+        return (flags[index] & LOADED) != 0;
+    }
+
+    public boolean isDirectory(int row) {
+        return (flags[order[row]] & DIRECTORY) != 0;
+    }
+
+    public boolean isHidden(int row) {
+        return (flags[order[row]] & HIDDEN) != 0;
+    }
+
+    public String nameAt(int row) {
+        return names[order[row]];
+    }
+
+    public String nameOf(int index) {
+        return names[index];
+    }
+
+    public int loadedCount() {
+        return loaded;
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(Arrays.copyOf(names, count), Arrays.copyOf(sizes, count),
+                Arrays.copyOf(modified, count), Arrays.copyOf(flags, count), count);
+    }
+
+    public boolean applyOrder(int[] sorted, int column, boolean ascending) {
+        if (sorted.length != count) return false;
+        System.arraycopy(sorted, 0, order, 0, count);
+        for (int row = 0; row < count; row++) {
+            rowOf[order[row]] = row;
+        }
+        this.sortColumn = column;
+        this.ascending = ascending;
+        fireTableDataChanged();
+        return true;
+    }
+
+    public static int[] sortedOrder(Snapshot snapshot, int column, boolean ascending) {
+        int[] index = new int[snapshot.count()];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = i;
+        }
+        String[] names = snapshot.names();
+        long[] sizes = snapshot.sizes();
+        long[] modified = snapshot.modified();
+        byte[] flags = snapshot.flags();
+        if (column == SIZE || column == MODIFIED) {
+            long[] values = column == SIZE ? sizes : modified;
+            long[] keys = new long[index.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (flags[i] & DIRECTORY) != 0 ? Long.MIN_VALUE : ascending ? values[i] : -values[i];
+            }
+            IndexSort.sortByKey(index, keys);
+            return index;
+        }
+        String[] keys = new String[index.length];
+        byte[] groups = new byte[index.length];
+        List<String> types = column == TYPE ? new ArrayList<>() : List.of();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = names[i].toLowerCase(Locale.ROOT);
+            if (column == TYPE) {
+                String type = typeOf(names[i], flags[i]);
+                int group = types.indexOf(type);
+                if (group < 0) {
+                    group = types.size();
+                    types.add(type);
+                }
+                groups[i] = (byte) group;
+            }
+        }
+        int[] ranks = new int[types.size()];
+        List<String> sortedTypes = new ArrayList<>(types);
+        Collections.sort(sortedTypes);
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = sortedTypes.indexOf(types.get(i));
+        }
+        int direction = ascending ? 1 : -1;
+        IndexSort.sort(index, index.length, (a, b) -> {
+            int group = Integer.compare(flags[b] & DIRECTORY, flags[a] & DIRECTORY);
+            if (group != 0) return group;
+            int result = column == TYPE ? Integer.compare(ranks[groups[a]], ranks[groups[b]]) : 0;
+            if (result == 0) result = keys[a].compareTo(keys[b]);
+            return direction * result;
+        });
+        return index;
+    }
+
+    private static String typeOf(String name, byte flags) {
+        boolean directory = (flags & DIRECTORY) != 0;
+        return FileInfoReader.typeOf(FileInfoReader.extensionOf(name, directory), directory);
+    }
+
+    @Override
+    public int getRowCount() {
+        return count;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int index = order[row];
+        boolean known = (flags[index] & LOADED) != 0;
+        boolean directory = (flags[index] & DIRECTORY) != 0;
+        return switch (column) {
+            case NAME -> names[index];
+            case SIZE -> !known ? "…" : directory ? "" : formatSize(sizes[index]);
+            case MODIFIED -> known && modified[index] > 0 ? DATE_FORMAT.format(Instant.ofEpochMilli(modified[index])) : "";
+            case TYPE -> known ? typeOf(names[index], flags[index]) : "";
+            default -> "";
+        };
+    }
+
+    private static String formatSize(long size) {
+        if (size < 1024) return size + " Б";
+        if (size < 1024 * 1024) return String.format("%.1f КБ", size / 1024.0);
+        if (size < 1024L * 1024 * 1024) return String.format("%.1f МБ", size / (1024.0 * 1024.0));
+        return String.format("%.2f ГБ", size / (1024.0 * 1024.0 * 1024.0));
+    }
+}
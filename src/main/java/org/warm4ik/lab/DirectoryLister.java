@@ -0,0 +1,73 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+public final class DirectoryLister {
+    private static final long FLUSH_INTERVAL_MS = 30;
+
+    private DirectoryLister() {
+    }
+
+    public static void list(Path dir, int chunkSize, Consumer<List<FileEntry>> sink, BooleanSupplier cancelled)
+            throws IOException {
+        boolean dos = dir.getFileSystem().supportedFileAttributeViews().contains("dos");
+        List<FileEntry> chunk = new ArrayList<>(chunkSize);
+        long lastFlush = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                if (cancelled.getAsBoolean()) return;
+                chunk.add(readEntry(child, dos));
+                long now = System.currentTimeMillis();
+                if (chunk.size() >= chunkSize || (!chunk.isEmpty() && now - lastFlush >= FLUSH_INTERVAL_MS)) {
+                    sink.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                    lastFlush = now;
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        if (!chunk.isEmpty() && !cancelled.getAsBoolean()) {
+            sink.accept(chunk);
+        }
+    }
+
+    public static FileEntry readEntry(Path path) {
+        return readEntry(path, path.getFileSystem().supportedFileAttributeViews().contains("dos"));
+    }
+
+    public static FileEntry readEntry(Path path, boolean dos) {
+        Path fileName = path.getFileName();
+        String name = fileName != null ? fileName.toString() : path.toString();
+        try {
+            BasicFileAttributes attrs;
+            boolean hidden;
+            if (dos) {
+                DosFileAttributes dosAttrs = Files.readAttributes(path, DosFileAttributes.class);
+                attrs = dosAttrs;
+                hidden = dosAttrs.isHidden();
+            } else {
+                attrs = readBasic(path);
+                hidden = name.startsWith(".");
+            }
+            return new FileEntry(path, name, attrs.isDirectory(), hidden, attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return new FileEntry(path, name, false, !dos && name.startsWith("."), 0, 0);
+        }
+    }
+
+    private static BasicFileAttributes readBasic(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.warm4ik.lab;
+
+public record DirectorySize(long bytes, long files, long directories) {
+    public static final DirectorySize EMPTY = new DirectorySize(0, 0, 0);
+
+    public DirectorySize plus(DirectorySize other) {
+        return new DirectorySize(bytes + other.bytes, files + other.files, directories + other.directories);
+    }
+}
@@ -0,0 +1,213 @@
+package org.warm4ik.lab;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DirectorySizeCache implements Closeable {
+    private static final int FORMAT_VERSION = 1;
+
+    private record Entry(DirectorySize size, long modified, String fileKey, WatchKey watchKey) {
+    }
+
+    private final int maxEntries;
+    private final WatchService watchService;
+    private final LinkedHashMap<Path, Entry> entries;
+    private final Map<Path, Entry> hints = new ConcurrentHashMap<>();
+    private final Map<Path, Set<Path>> hintChildren = new ConcurrentHashMap<>();
+    private long hits = 0;
+    private long misses = 0;
+
+    public DirectorySizeCache(int maxEntries) throws IOException {
+        this.maxEntries = maxEntries;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        Thread watcherThread = new Thread(this::processEvents, "size-cache-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    public DirectorySize lookup(Path dir, BasicFileAttributes attrs) {
+        synchronized (this) {
+            Entry entry = entries.get(dir);
+            if (entry != null && entry.watchKey().isValid() && matches(entry, attrs)) {
+                hits++;
+                return entry.size();
+            }
+            if (entry != null) {
+                remove(dir);
+            }
+        }
+        Entry hint = hints.get(dir);
+        if (hint != null && verifyHint(dir, attrs) >= 0) {
+            synchronized (this) {
+                hits++;
+            }
+            return hint.size();
+        }
+        synchronized (this) {
+            misses++;
+        }
+        return null;
+    }
+
+    private static boolean matches(Entry entry, BasicFileAttributes attrs) {
+        return entry.modified() == attrs.lastModifiedTime().toMillis()
+                && entry.fileKey().equals(String.valueOf(attrs.fileKey()));
+    }
+
+    private long verifyHint(Path dir, BasicFileAttributes attrs) {
+        Entry hint = hints.remove(dir);
+        if (hint == null || !matches(hint, attrs)) return -1;
+        long directories = 0;
+        for (Path child : hintChildren.getOrDefault(dir, Set.of())) {
+            BasicFileAttributes childAttrs;
+            try {
+                childAttrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                return -1;
+            }
+            long below = verifyHint(child, childAttrs);
+            if (below < 0) return -1;
+            directories += below + 1;
+        }
+        if (directories != hint.size().directories()) return -1;
+        store(dir, hint.modified(), hint.fileKey(), hint.size());
+        return directories;
+    }
+
+    public boolean store(Path dir, BasicFileAttributes attrs, DirectorySize size) {
+        return store(dir, attrs.lastModifiedTime().toMillis(), String.valueOf(attrs.fileKey()), size);
+    }
+
+    private boolean store(Path dir, long modified, String fileKey, DirectorySize size) {
+        WatchKey watchKey;
+        try {
+            watchKey = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+        hints.remove(dir);
+        synchronized (this) {
+            Entry previous = entries.put(dir, new Entry(size, modified, fileKey, watchKey));
+            if (previous != null && previous.watchKey() != watchKey) previous.watchKey().cancel();
+            while (entries.size() > maxEntries) {
+                invalidateResolved(entries.keySet().iterator().next());
+            }
+        }
+        return true;
+    }
+
+    public void invalidate(Path path) {
+        invalidateResolved(resolve(path));
+    }
+
+    private synchronized void invalidateResolved(Path path) {
+        for (Path p = path; p != null; p = p.getParent()) {
+            remove(p);
+            hints.remove(p);
+        }
+    }
+
+    static Path resolve(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        for (Path p = absolute; p != null; p = p.getParent()) {
+            try {
+                return p.toRealPath().resolve(p.relativize(absolute));
+            } catch (IOException ignored) {
+            }
+        }
+        return absolute;
+    }
+
+    private void remove(Path dir) {
+        Entry removed = entries.remove(dir);
+        if (removed != null) removed.watchKey().cancel();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            synchronized (this) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path child) {
+                        remove(dir.resolve(child));
+                    }
+                }
+                invalidateResolved(dir);
+            }
+            key.cancel();
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Map<Path, Entry> copy;
+        synchronized (this) {
+            copy = new LinkedHashMap<>(entries);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(copy.size());
+            for (Map.Entry<Path, Entry> e : copy.entrySet()) {
+                DirectorySize size = e.getValue().size();
+                out.writeUTF(e.getKey().toString());
+                out.writeLong(size.bytes());
+                out.writeLong(size.files());
+                out.writeLong(size.directories());
+                out.writeLong(e.getValue().modified());
+                out.writeUTF(e.getValue().fileKey());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Path dir = Paths.get(in.readUTF());
+                DirectorySize size = new DirectorySize(in.readLong(), in.readLong(), in.readLong());
+                long modified = in.readLong();
+                String fileKey = in.readUTF();
+                hints.put(dir, new Entry(size, modified, fileKey, null));
+                if (dir.getParent() != null) {
+                    hintChildren.computeIfAbsent(dir.getParent(), parent -> ConcurrentHashMap.newKeySet()).add(dir);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
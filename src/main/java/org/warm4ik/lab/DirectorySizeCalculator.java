@@ -0,0 +1,118 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+public class DirectorySizeCalculator {
+    private final ForkJoinPool pool;
+    private final DirectorySizeCache cache;
+
+    public static final int DEFAULT_PARALLELISM =
+            Integer.getInteger("explorer.sizeParallelism", Runtime.getRuntime().availableProcessors() * 2);
+
+    public DirectorySizeCalculator() {
+        this(DEFAULT_PARALLELISM, null);
+    }
+
+    public DirectorySizeCalculator(int parallelism, DirectorySizeCache cache) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.cache = cache;
+    }
+
+    public DirectorySize calculate(Path path) {
+        return start(path, null).await();
+    }
+
+    public SizeScan start(Path path, Consumer<DirectorySize> listener) {
+        SizeScan scan = new SizeScan(listener);
+        scan.start(pool.submit(new DirectoryTask(DirectorySizeCache.resolve(path), null, scan)));
+        return scan;
+    }
+
+    private class DirectoryTask extends RecursiveTask<DirectorySize> {
+        private final Path dir;
+        private final SizeScan scan;
+        private final List<DirectoryTask> subtasks = new ArrayList<>();
+        private BasicFileAttributes attrs;
+        private DirectorySize cached = null;
+        private boolean cacheable = true;
+        private long bytes = 0;
+        private long files = 0;
+        private long directories = 0;
+
+        DirectoryTask(Path dir, BasicFileAttributes attrs, SizeScan scan) {
+            this.dir = dir;
+            this.attrs = attrs;
+            this.scan = scan;
+        }
+
+        @Override
+        protected DirectorySize compute() {
+            if (scan.isCancelled()) return DirectorySize.EMPTY;
+            if (attrs != null && cache != null) {
+                cached = cache.lookup(dir, attrs);
+                if (cached != null) {
+                    scan.add(cached.bytes(), cached.files(), cached.directories());
+                    return cached;
+                }
+            }
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes dirAttrs) {
+                        if (attrs == null) {
+                            attrs = dirAttrs;
+                            cached = cache != null ? cache.lookup(dir, attrs) : null;
+                            if (cached != null) return FileVisitResult.TERMINATE;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes fileAttrs) {
+                        if (fileAttrs.isDirectory()) {
+                            DirectoryTask subtask = new DirectoryTask(file, fileAttrs, scan);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                            directories++;
+                        } else {
+                            bytes += fileAttrs.size();
+                            files++;
+                        }
+                        return scan.isCancelled() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        cacheable = false;
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                cacheable = false;
+            }
+            if (cached != null) {
+                scan.add(cached.bytes(), cached.files(), cached.directories());
+                return cached;
+            }
+            scan.add(bytes, files, directories);
+            DirectorySize total = new DirectorySize(bytes, files, directories);
+            for (int i = subtasks.size() - 1; i >= 0; i--) {
+                DirectoryTask subtask = subtasks.get(i);
+                total = total.plus(subtask.join());
+                cacheable &= subtask.cacheable;
+            }
+            if (cache != null && cacheable && attrs != null && attrs.isDirectory() && !scan.isCancelled()) {
+                cacheable = cache.store(dir, attrs, total);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.warm4ik.lab;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class DirectoryWatcher implements Closeable {
+    public record Change(Path directory, Map<String, FileEntry> present, Set<String> removed, boolean overflow) {
+    }
+
+    private final WatchService watchService;
+    private final long debounceMillis;
+    private final Map<Path, WatchKey> keys = new ConcurrentHashMap<>();
+    private final Map<Path, Set<String>> pendingNames = new HashMap<>();
+    private final Set<Path> pendingOverflow = new HashSet<>();
+    private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "watch-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean flushScheduled = false;
+
+    public DirectoryWatcher(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            service = null;
+        }
+        this.watchService = service;
+        if (service == null) return;
+        Thread eventThread = new Thread(this::processEvents, "directory-watcher");
+        eventThread.setDaemon(true);
+        eventThread.start();
+    }
+
+    public void addListener(Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+
+    public void watch(Path dir) {
+        if (watchService == null || keys.containsKey(dir)) return;
+        try {
+            WatchKey key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            keys.put(dir, key);
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    public void unwatch(Path dir) {
+        WatchKey key = keys.remove(dir);
+        if (key != null) key.cancel();
+    }
+
+    public void unwatchTree(Path root) {
+        keys.keySet().removeIf(dir -> {
+            if (!dir.startsWith(root)) return false;
+            WatchKey key = keys.get(dir);
+            if (key != null) key.cancel();
+            return true;
+        });
+    }
+
+    public boolean isWatched(Path dir) {
+        return keys.containsKey(dir);
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            List<WatchEvent<?>> events = key.pollEvents();
+            synchronized (this) {
+                Set<String> names = pendingNames.computeIfAbsent(dir, d -> new HashSet<>());
+                for (WatchEvent<?> event : events) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        pendingOverflow.add(dir);
+                    } else if (event.context() instanceof Path child) {
+                        names.add(child.toString());
+                    }
+                }
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    flusher.schedule(this::flush, debounceMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(dir, key);
+            }
+        }
+    }
+
+    private void flush() {
+        Map<Path, Set<String>> names;
+        Set<Path> overflow;
+        synchronized (this) {
+            names = new HashMap<>(pendingNames);
+            overflow = new HashSet<>(pendingOverflow);
+            pendingNames.clear();
+            pendingOverflow.clear();
+            flushScheduled = false;
+        }
+        for (Map.Entry<Path, Set<String>> e : names.entrySet()) {
+            Path dir = e.getKey();
+            if (!keys.containsKey(dir)) continue;
+            Map<String, FileEntry> present = new HashMap<>();
+            Set<String> removed = new HashSet<>();
+            boolean dirOverflow = overflow.contains(dir);
+            if (!dirOverflow) {
+                for (String name : e.getValue()) {
+                    Path child = dir.resolve(name);
+                    if (Files.exists(child, LinkOption.NOFOLLOW_LINKS)) {
+                        present.put(name, DirectoryLister.readEntry(child));
+                    } else {
+                        removed.add(name);
+                    }
+                }
+            }
+            Change change = new Change(dir, present, removed, dirOverflow);
+            for (Consumer<Change> listener : listeners) {
+                listener.accept(change);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        if (watchService != null) watchService.close();
+    }
+}
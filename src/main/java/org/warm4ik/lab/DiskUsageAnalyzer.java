@@ -0,0 +1,25 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class DiskUsageAnalyzer {
+    private final ForkJoinPool pool;
+    private final int topN;
+
+    public DiskUsageAnalyzer() {
+        this(Integer.getInteger("explorer.duParallelism", Runtime.getRuntime().availableProcessors() * 2),
+                Integer.getInteger("explorer.duTopN", 100));
+    }
+
+    public DiskUsageAnalyzer(int parallelism, int topN) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.topN = topN;
+    }
+
+    public DiskUsageScan start(Path root) {
+        DiskUsageScan scan = new DiskUsageScan(root.toAbsolutePath().normalize(), topN);
+        scan.start(pool);
+        return scan;
+    }
+}
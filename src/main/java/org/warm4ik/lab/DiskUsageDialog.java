@@ -0,0 +1,121 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class DiskUsageDialog extends JDialog {
+    private static final int REFRESH_MS = 300;
+    private static final String[] COLUMNS = {"Путь", "Размер, МБ", "Файлов"};
+
+    private final DiskUsageScan scan;
+    private final ItemsTableModel directoriesModel = new ItemsTableModel();
+    private final ItemsTableModel filesModel = new ItemsTableModel();
+    private final TreemapPanel treemap;
+    private final JLabel statusLabel = new JLabel(" ");
+    private final Timer timer;
+
+    public DiskUsageDialog(Frame owner, DiskUsageScan scan, Consumer<Path> onOpen) {
+        super(owner, "Анализ занятого места: " + scan.getRoot(), false);
+        this.scan = scan;
+        this.treemap = new TreemapPanel(scan);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Крупнейшие папки", createTable(directoriesModel, onOpen));
+        tabs.addTab("Крупнейшие файлы", createTable(filesModel, onOpen));
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, tabs, treemap);
+        splitPane.setResizeWeight(0.4);
+        add(splitPane, BorderLayout.CENTER);
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(statusLabel, BorderLayout.SOUTH);
+
+        timer = new Timer(REFRESH_MS, e -> refresh());
+        timer.start();
+        setSize(1400, 800);
+        setLocationRelativeTo(owner);
+    }
+
+    private JScrollPane createTable(ItemsTableModel model, Consumer<Path> onOpen) {
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(500);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0) {
+                    onOpen.accept(model.items.get(table.convertRowIndexToModel(row)).path());
+                }
+            }
+        });
+        return new JScrollPane(table);
+    }
+
+    private void refresh() {
+        DiskUsageScan.Snapshot snapshot = scan.snapshot();
+        directoriesModel.setItems(snapshot.topDirectories());
+        filesModel.setItems(snapshot.topFiles());
+        treemap.refresh();
+        statusLabel.setText(String.format("%s: %.2f МБ, файлов: %d, папок: %d",
+                snapshot.finished() ? "Готово" : "Сканирование",
+                snapshot.bytes() / (1024.0 * 1024.0), snapshot.files(), snapshot.directories()));
+        if (snapshot.finished()) timer.stop();
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+        scan.cancel();
+        super.dispose();
+    }
+
+    private static class ItemsTableModel extends AbstractTableModel {
+        private List<DiskUsageScan.Item> items = List.of();
+
+        void setItems(List<DiskUsageScan.Item> items) {
+            this.items = items;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return items.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 1 -> Double.class;
+                case 2 -> Long.class;
+                default -> String.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            DiskUsageScan.Item item = items.get(row);
+            return switch (column) {
+                case 0 -> item.path().toString();
+                case 1 -> Math.round(item.bytes() / 1024.0 / 1024.0 * 100) / 100.0;
+                case 2 -> item.files();
+                default -> "";
+            };
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class DiskUsageScan {
+    public static final int FILES_ID = -1;
+    private static final int NO_PARENT = -1;
+    private static final int NO_CHILD = -1;
+
+    public record Item(int id, Path path, long bytes, long files, boolean directory) {
+    }
+
+    public record Snapshot(List<Item> topDirectories, List<Item> topFiles,
+                           long bytes, long files, long directories, boolean finished) {
+    }
+
+    private record FileHit(Path path, long bytes) {
+    }
+
+    private final Path root;
+    private final int topN;
+    private final PriorityQueue<FileHit> topFiles = new PriorityQueue<>(Comparator.comparingLong(FileHit::bytes));
+    private volatile long topFileThreshold = 0;
+    private volatile boolean cancelled = false;
+    private ForkJoinTask<?> task;
+
+    private byte[] names = new byte[1 << 14];
+    private int[] offsets = new int[257];
+    private int[] parents = new int[256];
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];
+    private long[] ownBytes = new long[256];
+    private long[] ownFiles = new long[256];
+    private long[] totalBytes = new long[256];
+    private long[] totalFiles = new long[256];
+    private int count = 0;
+
+    DiskUsageScan(Path root, int topN) {
+        this.root = root;
+        this.topN = topN;
+    }
+
+    void start(ForkJoinPool pool) {
+        int rootId;
+        synchronized (this) {
+            rootId = addDirectory(NO_PARENT, root.toString());
+        }
+        task = pool.submit(new ScanTask(rootId, root));
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isFinished() {
+        return task != null && task.isDone();
+    }
+
+    public Snapshot snapshot() {
+        List<FileHit> files;
+        synchronized (topFiles) {
+            files = new ArrayList<>(topFiles);
+        }
+        files.sort(Comparator.comparingLong(FileHit::bytes).reversed());
+        List<Item> fileItems = files.stream().map(f -> new Item(FILES_ID, f.path(), f.bytes(), 1, false)).toList();
+
+        boolean finished = isFinished();
+        synchronized (this) {
+            PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingLong(id -> totalBytes[id]));
+            for (int id = 1; id < count; id++) {
+                if (top.size() < topN) {
+                    top.add(id);
+                } else if (totalBytes[id] > totalBytes[top.peek()]) {
+                    top.poll();
+                    top.add(id);
+                }
+            }
+            List<Item> dirItems = new ArrayList<>();
+            for (int id : top) {
+                dirItems.add(directoryItem(id));
+            }
+            dirItems.sort(Comparator.comparingLong(Item::bytes).reversed());
+            return new Snapshot(dirItems, fileItems, totalBytes[0], totalFiles[0], count, finished);
+        }
+    }
+
+    public synchronized List<Item> children(int id) {
+        List<Item> items = new ArrayList<>();
+        for (int child = firstChild[id]; child != NO_CHILD; child = nextSibling[child]) {
+            items.add(directoryItem(child));
+        }
+        if (ownBytes[id] > 0) {
+            items.add(new Item(FILES_ID, pathOf(id), ownBytes[id], ownFiles[id], false));
+        }
+        items.sort(Comparator.comparingLong(Item::bytes).reversed());
+        return items;
+    }
+
+    public synchronized Item item(int id) {
+        return directoryItem(id);
+    }
+
+    public synchronized int parentOf(int id) {
+        return parents[id];
+    }
+
+    private Item directoryItem(int id) {
+        return new Item(id, pathOf(id), totalBytes[id], totalFiles[id], true);
+    }
+
+    private int addDirectory(int parent, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int id = count;
+        if (parents.length <= id) {
+            int capacity = parents.length + (parents.length >> 1);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            ownBytes = Arrays.copyOf(ownBytes, capacity);
+            ownFiles = Arrays.copyOf(ownFiles, capacity);
+            totalBytes = Arrays.copyOf(totalBytes, capacity);
+            totalFiles = Arrays.copyOf(totalFiles, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        if (names.length < offsets[id] + bytes.length) {
+            names = Arrays.copyOf(names, Math.max(offsets[id] + bytes.length, names.length + (names.length >> 1)));
+        }
+        System.arraycopy(bytes, 0, names, offsets[id], bytes.length);
+        offsets[id + 1] = offsets[id] + bytes.length;
+        parents[id] = parent;
+        firstChild[id] = NO_CHILD;
+        nextSibling[id] = parent == NO_PARENT ? NO_CHILD : firstChild[parent];
+        if (parent != NO_PARENT) firstChild[parent] = id;
+        count++;
+        return id;
+    }
+
+    private Path pathOf(int id) {
+        Deque<String> parts = new ArrayDeque<>();
+        for (int i = id; i != NO_PARENT; i = parents[i]) {
+            parts.push(new String(names, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8));
+        }
+        Path path = Paths.get(parts.pop());
+        for (String part : parts) {
+            path = path.resolve(part);
+        }
+        return path;
+    }
+
+    private void offerFile(Path file, long bytes) {
+        if (bytes <= topFileThreshold) return;
+        synchronized (topFiles) {
+            topFiles.add(new FileHit(file, bytes));
+            if (topFiles.size() > topN) topFiles.poll();
+            if (topFiles.size() == topN) topFileThreshold = topFiles.peek().bytes();
+        }
+    }
+
+    private class ScanTask extends RecursiveAction {
+        private final int id;
+        private final Path dir;
+
+        ScanTask(int id, Path dir) {
+            this.id = id;
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) return;
+            List<Path> subdirs = new ArrayList<>();
+            long[] own = new long[2];
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isDirectory()) {
+                            subdirs.add(file);
+                        } else {
+                            own[0] += attrs.size();
+                            own[1]++;
+                            offerFile(file, attrs.size());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException ignored) {
+            }
+
+            List<ScanTask> subtasks = new ArrayList<>(subdirs.size());
+            synchronized (DiskUsageScan.this) {
+                ownBytes[id] = own[0];
+                ownFiles[id] = own[1];
+                for (int i = id; i != NO_PARENT; i = parents[i]) {
+                    totalBytes[i] += own[0];
+                    totalFiles[i] += own[1];
+                }
+                for (Path subdir : subdirs) {
+                    subtasks.add(new ScanTask(addDirectory(id, subdir.getFileName().toString()), subdir));
+                }
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
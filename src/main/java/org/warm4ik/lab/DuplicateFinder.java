@@ -0,0 +1,173 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DuplicateFinder {
+    private static final String DIGEST = "SHA-256";
+
+    private record Candidate(Path path, long size) {
+    }
+
+    private record Key(long size, String hash) {
+    }
+
+    private final ExecutorService pool;
+    private final int blockSize;
+    private final long mapChunk;
+
+    public DuplicateFinder() {
+        this(Integer.getInteger("explorer.dupThreads", Math.max(2, Runtime.getRuntime().availableProcessors())),
+                Integer.getInteger("explorer.dupBlock", 4096),
+                Long.getLong("explorer.dupMapChunk", 64L * 1024 * 1024));
+    }
+
+    public DuplicateFinder(int threads, int blockSize, long mapChunk) {
+        this.blockSize = blockSize;
+        this.mapChunk = mapChunk;
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "dup-hasher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public DuplicateReport find(Path root, ProgressListener listener) throws IOException {
+        Map<Long, List<Candidate>> bySize = new HashMap<>();
+        Set<Object> seenKeys = new HashSet<>();
+        long[] scanned = new long[2];
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isRegularFile() || attrs.size() == 0) return FileVisitResult.CONTINUE;
+                if (attrs.fileKey() != null && !seenKeys.add(attrs.fileKey())) return FileVisitResult.CONTINUE;
+                scanned[0]++;
+                scanned[1] += attrs.size();
+                bySize.computeIfAbsent(attrs.size(), s -> new ArrayList<>()).add(new Candidate(file, attrs.size()));
+                listener.fileProcessed(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        LongAdder bytesRead = new LongAdder();
+        List<List<Candidate>> sizeGroups = bySize.values().stream().filter(g -> g.size() > 1).toList();
+        List<List<Candidate>> partialGroups = regroup(sizeGroups, candidate -> {
+            String hash = partialHash(candidate);
+            bytesRead.add(Math.min(candidate.size(), 2L * blockSize));
+            return hash;
+        }, listener);
+
+        List<List<Candidate>> fullCandidates = new ArrayList<>();
+        List<List<Candidate>> confirmed = new ArrayList<>();
+        for (List<Candidate> group : partialGroups) {
+            (group.get(0).size() <= 2L * blockSize ? confirmed : fullCandidates).add(group);
+        }
+        confirmed.addAll(regroup(fullCandidates, candidate -> {
+            String hash = fullHash(candidate, listener);
+            bytesRead.add(candidate.size());
+            return hash;
+        }, listener));
+
+        List<DuplicateReport.Group> groups = new ArrayList<>();
+        for (List<Candidate> group : confirmed) {
+            groups.add(new DuplicateReport.Group(group.get(0).size(), group.stream().map(Candidate::path).sorted().toList()));
+        }
+        groups.sort(Comparator.comparingLong(DuplicateReport.Group::reclaimableBytes).reversed());
+        return new DuplicateReport(groups, scanned[0], scanned[1], bytesRead.sum());
+    }
+
+    private interface Hasher {
+        String hash(Candidate candidate) throws IOException;
+    }
+
+    private List<List<Candidate>> regroup(List<List<Candidate>> groups, Hasher hasher,
+                                          ProgressListener listener) throws IOException {
+        Map<Candidate, Future<String>> hashes = new LinkedHashMap<>();
+        for (List<Candidate> group : groups) {
+            for (Candidate candidate : group) {
+                hashes.put(candidate, pool.submit(() -> hasher.hash(candidate)));
+            }
+        }
+        Map<Key, List<Candidate>> byHash = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Candidate, Future<String>> e : hashes.entrySet()) {
+                String hash;
+                try {
+                    hash = e.getValue().get();
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof CancellationException cancelled) throw cancelled;
+                    continue;
+                }
+                Candidate candidate = e.getKey();
+                byHash.computeIfAbsent(new Key(candidate.size(), hash), k -> new ArrayList<>()).add(candidate);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } finally {
+            hashes.values().forEach(future -> future.cancel(true));
+        }
+        return byHash.values().stream().filter(g -> g.size() > 1).toList();
+    }
+
+    private String partialHash(Candidate candidate) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(candidate.path(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, blockSize));
+            readFully(channel, buffer, 0);
+            digest.update(buffer.flip());
+            if (size > blockSize) {
+                long tailStart = Math.max(blockSize, size - blockSize);
+                buffer = ByteBuffer.allocate((int) (size - tailStart));
+                readFully(channel, buffer, tailStart);
+                digest.update(buffer.flip());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String fullHash(Candidate candidate, ProgressListener listener) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(candidate.path(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += mapChunk) {
+                long length = Math.min(mapChunk, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                digest.update(buffer);
+                listener.bytesProcessed(length);
+            }
+        }
+        listener.fileProcessed(candidate.path());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) break;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record DuplicateReport(List<Group> groups, long scannedFiles, long scannedBytes, long bytesRead) {
+    public record Group(long size, List<Path> files) {
+        public long reclaimableBytes() {
+            return size * (files.size() - 1);
+        }
+    }
+
+    public long reclaimableBytes() {
+        return groups.stream().mapToLong(Group::reclaimableBytes).sum();
+    }
+
+    public String summary() {
+        return String.format("Групп дубликатов: %d, можно освободить: %.2f МБ (просмотрено файлов: %d, %.2f МБ; прочитано: %.2f МБ)",
+                groups.size(), reclaimableBytes() / (1024.0 * 1024.0), scannedFiles,
+                scannedBytes / (1024.0 * 1024.0), bytesRead / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,163 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DuplicatesDialog extends JDialog {
+    private static final String[] COLUMNS = {"Группа", "Размер", "Файл", "Действие"};
+
+    private record Row(int group, long size, Path file, boolean keep) {
+    }
+
+    private final FileExplorer fileOps;
+    private final DuplicateReport report;
+    private final RowsTableModel tableModel = new RowsTableModel();
+    private final JTable table = new JTable(tableModel);
+    private final JLabel summaryLabel = new JLabel(" ");
+
+    public DuplicatesDialog(Frame owner, FileExplorer fileOps, File directory, DuplicateReport report) {
+        super(owner, "Дубликаты: " + directory.getAbsolutePath(), false);
+        this.fileOps = fileOps;
+        this.report = report;
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        for (int i = 0; i < report.groups().size(); i++) {
+            DuplicateReport.Group group = report.groups().get(i);
+            for (int j = 0; j < group.files().size(); j++) {
+                tableModel.rows.add(new Row(i + 1, group.size(), group.files().get(j), j == 0));
+            }
+        }
+        table.getColumnModel().getColumn(2).setPreferredWidth(700);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton linkButton = new JButton("Заменить жесткими ссылками");
+        linkButton.addActionListener(e -> processSelected(true));
+        JButton deleteButton = new JButton("Удалить дубликаты");
+        deleteButton.addActionListener(e -> processSelected(false));
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(new JLabel("Для выделенных строк (первый файл группы сохраняется):"));
+        buttons.add(linkButton);
+        buttons.add(deleteButton);
+        add(buttons, BorderLayout.NORTH);
+
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        summaryLabel.setText(report.summary());
+        add(summaryLabel, BorderLayout.SOUTH);
+
+        setSize(1100, 600);
+        setLocationRelativeTo(owner);
+    }
+
+    private void processSelected(boolean hardLink) {
+        List<Row> selected = new ArrayList<>();
+        for (int index : table.getSelectedRows()) {
+            Row row = tableModel.rows.get(index);
+            if (!row.keep()) selected.add(row);
+        }
+        if (selected.isEmpty()) return;
+        int confirm = JOptionPane.showConfirmDialog(this,
+                (hardLink ? "Заменить жесткими ссылками файлов: " : "Удалить файлов: ") + selected.size() + "?",
+                "Подтверждение", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+        process(selected, hardLink, false);
+    }
+
+    private void process(List<Row> selected, boolean hardLink, boolean permanent) {
+        List<Row> notTrashed = new ArrayList<>();
+        new SwingWorker<List<String>, Row>() {
+            @Override
+            protected List<String> doInBackground() {
+                List<String> errors = new ArrayList<>();
+                for (Row row : selected) {
+                    try {
+                        if (hardLink) {
+                            fileOps.replaceWithHardLink(keptFile(row.group()).toFile(), row.file().toFile());
+                        } else if (permanent) {
+                            if (!fileOps.deleteFile(row.file().toFile())) throw new IOException("не удалось удалить");
+                        } else {
+                            try {
+                                fileOps.moveToTrash(row.file().toFile());
+                            } catch (IOException ex) {
+                                notTrashed.add(row);
+                                throw new IOException("не удалось переместить в корзину: " + ex.getMessage(), ex);
+                            }
+                        }
+                        publish(row);
+                    } catch (IOException | RuntimeException ex) {
+                        errors.add(row.file() + " — " + ex.getMessage());
+                    }
+                }
+                return errors;
+            }
+
+            @Override
+            protected void process(List<Row> done) {
+                tableModel.rows.removeAll(done);
+                tableModel.fireTableDataChanged();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<String> errors = get();
+                    long reclaimed = selected.stream().filter(r -> !tableModel.rows.contains(r)).mapToLong(Row::size).sum();
+                    summaryLabel.setText(String.format("%s; освобождено: %.2f МБ", report.summary(), reclaimed / (1024.0 * 1024.0)));
+                    if (!errors.isEmpty()) {
+                        JTextArea text = new JTextArea(String.join("\n", errors), 20, 80);
+                        text.setEditable(false);
+                        JOptionPane.showMessageDialog(DuplicatesDialog.this, new JScrollPane(text),
+                                "Ошибки", JOptionPane.WARNING_MESSAGE);
+                    }
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(DuplicatesDialog.this, ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+                }
+                if (notTrashed.isEmpty()) return;
+                int confirm = JOptionPane.showConfirmDialog(DuplicatesDialog.this,
+                        "Не удалось переместить в корзину файлов: " + notTrashed.size() + ".\nУдалить их безвозвратно?",
+                        "Подтверждение", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (confirm == JOptionPane.YES_OPTION) DuplicatesDialog.this.process(notTrashed, false, true);
+            }
+        }.execute();
+    }
+
+    private Path keptFile(int group) {
+        return report.groups().get(group - 1).files().get(0);
+    }
+
+    private static class RowsTableModel extends AbstractTableModel {
+        private final List<Row> rows = new ArrayList<>();
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Row r = rows.get(row);
+            return switch (column) {
+                case 0 -> r.group();
+                case 1 -> String.format("%.1f КБ", r.size() / 1024.0);
+                case 2 -> r.file().toString();
+                case 3 -> r.keep() ? "Оставить" : "";
+                default -> "";
+            };
+        }
+    }
+}
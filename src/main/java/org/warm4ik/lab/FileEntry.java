@@ -0,0 +1,6 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+
+public record FileEntry(Path path, String name, boolean directory, boolean hidden, long size, long modified) {
+}
@@ -3,221 +3,328 @@ package org.warm4ik.lab;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
-import java.nio.file.attribute.*;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class FileExplorer {
-    private File clipboardFile = null;
-    private File clipboardSourceDir = null;
+    public record ClipboardContent(List<File> files, boolean cut) {
+        public Set<File> sourceDirs() {
+            Set<File> dirs = new LinkedHashSet<>();
+            for (File file : files) {
+                if (file.getParentFile() != null) dirs.add(file.getParentFile());
+            }
+            return dirs;
+        }
+    }
+
+    private List<File> clipboardFiles = List.of();
+    private List<File> clipboardFolders = List.of();
     private boolean cutOperation = false;
+    private final CopyEngine copyEngine = new CopyEngine();
+    private final DeleteEngine deleteEngine = new DeleteEngine();
+    private final TrashBin trashBin = new TrashBin(new DeleteEngine(1, Thread.MIN_PRIORITY),
+            Long.getLong("explorer.trashRetentionSec", 300) * 1000,
+            Integer.getInteger("explorer.trashUndoDepth", 20),
+            Long.getLong("explorer.purgeFilesPerSec", 2000));
+    private final ContentSearch contentSearch = new ContentSearch();
+    private final DuplicateFinder duplicateFinder = new DuplicateFinder();
+    private final DiskUsageAnalyzer diskUsageAnalyzer = new DiskUsageAnalyzer();
+    private final FileInfoReader infoReader = new FileInfoReader();
+    private final DirectorySizeCache sizeCache = createSizeCache();
+    private final DirectorySizeCalculator sizeCalculator =
+            new DirectorySizeCalculator(DirectorySizeCalculator.DEFAULT_PARALLELISM, sizeCache);
+    private final BatchEngine batchEngine = new BatchEngine(copyEngine, deleteEngine, trashBin, sizeCalculator,
+            Integer.getInteger("explorer.batchConcurrency", 4));
+    private final SyncEngine syncEngine = new SyncEngine(copyEngine, deleteEngine);
+    private final ArchiveFileSystems archives = new ArchiveFileSystems();
+    private final ZipCompressor zipCompressor = new ZipCompressor();
+
+    private static DirectorySizeCache createSizeCache() {
+        try {
+            DirectorySizeCache cache = new DirectorySizeCache(Integer.getInteger("explorer.sizeCacheEntries", 50_000));
+            String persistent = System.getProperty("explorer.sizeCache");
+            if (persistent != null) {
+                Path file = Paths.get(persistent);
+                Thread loader = new Thread(() -> {
+                    try {
+                        cache.load(file);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }, "size-cache-loader");
+                loader.setDaemon(true);
+                loader.setPriority(Thread.MIN_PRIORITY);
+                loader.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    if (loader.isAlive()) return;
+                    try {
+                        cache.save(file);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }));
+            }
+            return cache;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
 
     public boolean hasClipboard() {
-        return clipboardFile != null;
+        return !clipboardFiles.isEmpty();
     }
 
     public File createFolder(File parentDir, String folderName) {
         if (folderName == null || folderName.trim().isEmpty()) return null;
         File newFolder = new File(parentDir, folderName);
+        invalidateSize(parentDir);
         return newFolder.mkdir() ? newFolder : null;
     }
 
     public boolean deleteFile(File file) {
-        return deleteRecursive(file);
+        return deleteFile(file, ProgressListener.NONE);
+    }
+
+    public boolean deleteFile(File file, ProgressListener listener) {
+        return deleteTree(file, listener).isSuccess();
+    }
+
+    public DeleteReport deleteTree(File file, ProgressListener listener) {
+        invalidateSize(file);
+        archives.release(file.toPath());
+        return deleteEngine.delete(file.toPath(), listener);
+    }
+
+    public TrashBin.TrashEntry moveToTrash(File file) throws IOException {
+        invalidateSize(file);
+        archives.release(file.toPath());
+        return trashBin.moveToTrash(file.toPath());
+    }
+
+    public boolean canUndoDelete() {
+        return trashBin.canUndo();
     }
 
-    private boolean deleteRecursive(File file) {
-        if (file.isDirectory()) {
-            File[] children = file.listFiles();
-            if (children != null) {
-                for (File child : children) {
-                    deleteRecursive(child);
-                }
+    public File undoDelete() throws IOException {
+        TrashBin.TrashEntry entry = trashBin.undo();
+        if (entry == null) return null;
+        invalidateSize(entry.original().toFile());
+        return entry.original().toFile();
+    }
+
+    public DiskUsageScan analyzeDiskUsage(File dir) {
+        return diskUsageAnalyzer.start(dir.toPath());
+    }
+
+    public DuplicateReport findDuplicates(File dir, ProgressListener listener) throws IOException {
+        return duplicateFinder.find(dir.toPath(), listener);
+    }
+
+    public void replaceWithHardLink(File original, File duplicate) throws IOException {
+        Path source = original.toPath();
+        Path target = duplicate.toPath();
+        List<Object> sourceStamp = stamp(source);
+        List<Object> targetStamp = stamp(target);
+        if (Files.mismatch(source, target) != -1) {
+            throw new IOException("Файлы изменились: " + original + ", " + duplicate);
+        }
+        Path link = generateUniqueFile(duplicate.getParentFile(), "." + duplicate.getName() + ".link").toPath();
+        Files.createLink(link, source);
+        try {
+            if (!stamp(source).equals(sourceStamp) || !stamp(target).equals(targetStamp)) {
+                throw new IOException("Файлы изменились: " + original + ", " + duplicate);
             }
+            Files.move(link, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(link);
+            throw e;
+        }
+        invalidateSize(duplicate);
+    }
+
+    private static List<Object> stamp(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        return Arrays.asList(attrs.size(), attrs.lastModifiedTime(), attrs.fileKey());
+    }
+
+    private void invalidateSize(File file) {
+        if (sizeCache != null && file != null) {
+            sizeCache.invalidate(file.toPath());
         }
-        return file.delete();
     }
 
     public File renameFile(File file, String newName) {
         if (newName == null || newName.trim().isEmpty()) return null;
         File newFile = new File(file.getParent(), newName);
+        invalidateSize(file);
+        archives.release(file.toPath());
         return file.renameTo(newFile) ? newFile : null;
     }
 
     public void copyFile(File file) {
-        clipboardFile = file;
-        cutOperation = false;
+        copyFiles(List.of(file), file.isDirectory() ? List.of(file) : List.of());
     }
 
     public void cutFile(File file) {
-        clipboardFile = file;
-        clipboardSourceDir = file.getParentFile();
+        cutFiles(List.of(file), file.isDirectory() ? List.of(file) : List.of());
+    }
+
+    public void copyFiles(List<File> files, List<File> folders) {
+        clipboardFiles = List.copyOf(files);
+        clipboardFolders = List.copyOf(folders);
+        cutOperation = false;
+    }
+
+    public void cutFiles(List<File> files, List<File> folders) {
+        clipboardFiles = List.copyOf(files);
+        clipboardFolders = List.copyOf(folders);
         cutOperation = true;
     }
 
+    public ClipboardContent takeClipboard() {
+        if (clipboardFiles.isEmpty()) return null;
+        ClipboardContent content = new ClipboardContent(clipboardFiles, cutOperation);
+        if (cutOperation) {
+            clipboardFiles = List.of();
+            clipboardFolders = List.of();
+            cutOperation = false;
+        }
+        return content;
+    }
+
     public File pasteFile(File targetDir) {
-        if (clipboardFile == null) return null;
-        File dest = new File(targetDir, clipboardFile.getName());
+        ClipboardContent content = takeClipboard();
+        if (content == null) return null;
         try {
-            if (cutOperation) {
-                Files.move(clipboardFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                clipboardFile = null;
-                cutOperation = false;
-                clipboardSourceDir = null;
-            } else {
-                dest = generateUniqueFile(targetDir, clipboardFile.getName());
-                if (clipboardFile.isDirectory()) {
-                    copyDirectory(clipboardFile.toPath(), dest.toPath());
-                } else {
-                    Files.copy(clipboardFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                }
-            }
-            return dest;
+            BatchEngine.Plan plan = planPaste(content, targetDir);
+            BatchReport report = executeBatch(plan, ProgressListener.NONE);
+            if (!report.isSuccess() || plan.steps().isEmpty()) return null;
+            return plan.steps().get(0).target().toFile();
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private File generateUniqueFile(File targetDir, String originalName) {
-        File dest = new File(targetDir, originalName);
-        if (!dest.exists()) {
-            return dest;
+    public BatchEngine.Plan planPaste(ClipboardContent content, File targetDir) throws IOException {
+        return batchEngine.plan(content.cut() ? BatchEngine.Kind.MOVE : BatchEngine.Kind.COPY,
+                content.files().stream().map(File::toPath).toList(), targetDir.toPath());
+    }
+
+    public BatchEngine.Plan planDelete(List<File> files, boolean useTrash) throws IOException {
+        return batchEngine.plan(useTrash ? BatchEngine.Kind.TRASH : BatchEngine.Kind.DELETE,
+                files.stream().map(File::toPath).toList(), null);
+    }
+
+    public BatchReport executeBatch(BatchEngine.Plan plan, ProgressListener listener) {
+        for (Path dir : plan.affectedDirectories()) {
+            invalidateSize(dir.toFile());
         }
-        String baseName = originalName;
-        String extension = "";
-        int dotIndex = originalName.lastIndexOf('.');
-        if (dotIndex > 0) {
-            baseName = originalName.substring(0, dotIndex);
-            extension = originalName.substring(dotIndex);
+        for (BatchEngine.Step step : plan.steps()) {
+            invalidateSize(step.source().toFile());
+            if (step.action() != BatchEngine.Action.COPY) archives.release(step.source());
         }
-        int copyNum = 1;
-        while (dest.exists()) {
-            String newName = String.format("%s - Копия (%d)%s", baseName, copyNum, extension);
-            dest = new File(targetDir, newName);
-            copyNum++;
+        return batchEngine.execute(plan, listener);
+    }
+
+    public List<File> getClipboardFiles() {
+        return clipboardFiles;
+    }
+
+    public List<File> getClipboardFolders() {
+        return clipboardFolders;
+    }
+
+    public List<SyncEngine.Plan> planSync(List<File> sources, File targetDir, SyncEngine.Options options,
+                                          BooleanSupplier cancelled) throws IOException {
+        List<SyncEngine.Plan> plans = new ArrayList<>();
+        for (File source : sources) {
+            plans.add(syncEngine.plan(source.toPath(), targetDir.toPath().resolve(source.getName()), options, cancelled));
         }
-        return dest;
+        return plans;
     }
 
+    public BatchReport executeSync(SyncEngine.Plan plan, ProgressListener listener) {
+        Set<Path> dirs = new HashSet<>();
+        dirs.add(plan.target());
+        plan.transfers().forEach(transfer -> dirs.add(transfer.target().getParent()));
+        plan.extras().forEach(extra -> dirs.add(extra.getParent()));
+        plan.conflicts().forEach(dirs::add);
+        dirs.forEach(dir -> invalidateSize(dir.toFile()));
+        return syncEngine.execute(plan, listener);
+    }
 
-    private void copyDirectory(Path source, Path target) throws IOException {
-        Files.walkFileTree(source, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path targetDir = target.resolve(source.relativize(dir));
-                Files.createDirectories(targetDir);
-                return FileVisitResult.CONTINUE;
-            }
+    public ArchiveFileSystems.Lease openArchive(Path archive) throws IOException {
+        return archives.acquire(archive);
+    }
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Path targetFile = target.resolve(source.relativize(file));
-                Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    public long measureArchiveEntry(Path entry) throws IOException {
+        return archives.measure(entry);
     }
 
-    public long calculateSizeRecursive(File file) {
-        if (file.isFile()) return file.length();
-        long size = 0;
-        File[] children = file.listFiles();
-        if (children != null) {
-            for (File child : children) {
-                size += calculateSizeRecursive(child);
-            }
+    public File extractArchiveEntry(Path entry, String name, File targetDir, ProgressListener listener) throws IOException {
+        invalidateSize(targetDir);
+        return archives.extract(entry, name, targetDir.toPath(), listener).toFile();
+    }
+
+    public ZipCompressor.Result compressToZip(File source, ProgressListener listener) throws IOException {
+        String name = source.getName();
+        int dotIndex = name.lastIndexOf('.');
+        if (!source.isDirectory() && dotIndex > 0) name = name.substring(0, dotIndex);
+        Path archive = reserveUniqueFile(source.getParentFile(), name + ".zip");
+        invalidateSize(source.getParentFile());
+        try {
+            return zipCompressor.compress(source.toPath(), archive, listener);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(archive);
+            throw e;
         }
-        return size;
     }
 
-    public String getFileInfo(File file) {
-        StringBuilder info = buildBaseFileInfo(file);
-        long size = file.isFile() ? file.length() : calculateSizeRecursive(file);
-        addSizeInfo(info, size);
-        return info.toString();
+    private Path reserveUniqueFile(File targetDir, String originalName) throws IOException {
+        while (true) {
+            Path candidate = generateUniqueFile(targetDir, originalName).toPath();
+            try {
+                return Files.createFile(candidate);
+            } catch (FileAlreadyExistsException ignored) {
+            }
+        }
     }
 
-    private StringBuilder buildBaseFileInfo(File file) {
-        StringBuilder info = new StringBuilder();
-        SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
-        info.append("1. Имя: ").append(file.getName()).append("\n");
-        String extension = getFileExtension(file);
-        info.append("2. Расширение: ").append(extension.isEmpty() ? "нет" : extension).append("\n");
-        info.append("3. Путь: ").append(file.getAbsolutePath()).append("\n");
-        info.append("5. Тип: ").append(getFileType(file, extension)).append("\n");
-        appendDates(info, file, sdf);
-        appendPermissions(info, file);
-        appendOwner(info, file);
-        appendAttributes(info, file);
-        return info;
+    private File generateUniqueFile(File targetDir, String originalName) {
+        return BatchEngine.uniqueTarget(targetDir.toPath(), originalName, Set.of()).toFile();
     }
 
-    private void addSizeInfo(StringBuilder info, long bytes) {
-        double mb = bytes / (1024.0 * 1024.0);
-        info.append("4. Размер: ")
-                .append(bytes).append(" байт (")
-                .append(String.format("%.2f МБ", mb)).append(")").append("\n");
+    public long calculateSizeRecursive(File file) {
+        return sizeCalculator.calculate(file.toPath()).bytes();
     }
 
-    private String getFileExtension(File file) {
-        if (file.isDirectory()) return "";
-        String name = file.getName();
-        int dotIndex = name.lastIndexOf('.');
-        return (dotIndex > 0 && dotIndex < name.length() - 1) ? name.substring(dotIndex + 1) : "";
+    public DirectorySize measure(File file) {
+        return sizeCalculator.calculate(file.toPath());
     }
 
-    private String getFileType(File file, String extension) {
-        if (file.isDirectory()) return "Папка";
-        return switch (extension.toLowerCase()) {
-            case "txt" -> "Текстовый файл";
-            case "jpg", "jpeg", "png", "gif" -> "Изображение";
-            case "mp3", "wav" -> "Аудиофайл";
-            case "exe" -> "Исполняемый файл";
-            case "zip", "rar" -> "Архив";
-            default -> "Файл";
-        };
+    public SizeScan startSizeScan(File file, Consumer<DirectorySize> listener) {
+        return sizeCalculator.start(file.toPath(), listener);
     }
 
-    private void appendDates(StringBuilder info, File file, SimpleDateFormat sdf) {
-        try {
-            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
-            info.append("6. Дата создания: ")
-                    .append(sdf.format(new Date(attrs.creationTime().toMillis()))).append("\n");
-            info.append("7. Дата изменения: ")
-                    .append(sdf.format(new Date(attrs.lastModifiedTime().toMillis()))).append("\n");
-        } catch (IOException e) {
-            info.append("6. Дата создания: недоступно\n");
-            info.append("7. Дата изменения: недоступно\n");
-        }
+    public int searchContent(File dir, ContentSearch.Query query, Consumer<ContentSearch.Match> sink,
+                             BooleanSupplier cancelled) throws IOException {
+        return contentSearch.search(dir.toPath(), query, sink, cancelled);
     }
 
-    private void appendPermissions(StringBuilder info, File file) {
-        info.append("8. Права: ")
-                .append(file.canRead() ? "Чтение " : "")
-                .append(file.canWrite() ? "Запись " : "")
-                .append(file.canExecute() ? "Выполнение" : "").append("\n");
+    public FileInfo getFileInfo(File file) {
+        return getFileInfo(file, null);
     }
 
-    private void appendOwner(StringBuilder info, File file) {
-        try {
-            info.append("9. Владелец: ")
-                    .append(Files.getOwner(file.toPath()).getName()).append("\n");
-        } catch (IOException e) {
-            info.append("9. Владелец: недоступно\n");
-        }
+    public FileInfo getFileInfo(File file, Consumer<DirectorySize> listener) {
+        FileInfo info = FileInfoReader.read(file.toPath());
+        return info.directory() ? info.withSize(startSizeScan(file, listener).await().bytes()) : info;
     }
 
-    private void appendAttributes(StringBuilder info, File file) {
-        ArrayList<String> attrs = new ArrayList<>();
-        if (file.isHidden()) attrs.add("Скрытый");
-        if (!file.canWrite()) attrs.add("Только для чтения");
-        try {
-            DosFileAttributes dos = Files.readAttributes(file.toPath(), DosFileAttributes.class);
-            if (dos.isArchive()) attrs.add("Архивный");
-            if (dos.isSystem()) attrs.add("Системный");
-        } catch (Exception ignored) { }
-        info.append("10. Атрибуты: ").append(String.join(", ", attrs)).append("\n");
+    public List<FileInfo> getFileInfos(List<File> files) {
+        return infoReader.readAll(files.stream().map(File::toPath).toList());
     }
 }
@@ -6,16 +6,46 @@ import javax.swing.event.TreeExpansionListener;
 import javax.swing.filechooser.FileSystemView;
 import javax.swing.tree.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class FileExplorerGUI extends JFrame {
+    private static final int LIST_CHUNK_SIZE = 512;
+    private static final int ROW_HEIGHT = 20;
+    private static final boolean USE_TRASH = Boolean.parseBoolean(System.getProperty("explorer.trash", "true"));
+
     private JTree tree;
-    private DefaultTreeModel treeModel;
-    private final FileSystemView fileSystemView = FileSystemView.getFileSystemView();
+    private FileTreeModel treeModel;
+    private SubtreeEvictor evictor;
+    private final JLabel statusBar = new JLabel(" ");
+    private final FileIconCache iconCache = new FileIconCache(FileSystemView.getFileSystemView(),
+            Integer.getInteger("explorer.iconCacheEntries", 1024));
     private final FileExplorer fileOps = new FileExplorer();
+    private final JobManager jobManager = new JobManager(Integer.getInteger("explorer.maxJobs", 2),
+            Long.getLong("explorer.throttleMbps", 0) * 1024 * 1024);
+    private final IoScheduler ioScheduler = new IoScheduler(Integer.getInteger("explorer.ioPerMount", 4));
+    private final DirectoryWatcher watcher = new DirectoryWatcher(Long.getLong("explorer.watchDebounceMs", 200));
+    private final Map<FileTreeNode, List<DirectoryWatcher.Change>> deferredChanges = new HashMap<>();
+    private final Map<FileTreeNode, List<Runnable>> afterLoad = new HashMap<>();
+    private final FileIndex fileIndex = new FileIndex(
+            Integer.getInteger("explorer.indexParallelism", Runtime.getRuntime().availableProcessors() * 2),
+            new DirectoryWatcher(Long.getLong("explorer.watchDebounceMs", 200)),
+            Integer.getInteger("explorer.indexWatchLimit", 8192));
+    private SearchPanel searchPanel;
+    private final PreviewPanel previewPanel = new PreviewPanel();
+    private ThumbnailPanel thumbnailPanel;
+    private DetailsPanel detailsPanel;
+    private JTabbedPane sideTabs;
 
     public FileExplorerGUI() {
         super("Проводник");
@@ -27,33 +57,56 @@ public class FileExplorerGUI extends JFrame {
     }
 
     private void initComponents() {
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("Компьютер");
-        File[] roots = File.listRoots();
-        Arrays.stream(roots).forEach(rootDrive -> {
-            DefaultMutableTreeNode driveNode = new DefaultMutableTreeNode(rootDrive);
-            root.add(driveNode);
-            addDummyNode(driveNode);
-        });
-
-        treeModel = new DefaultTreeModel(root);
+        treeModel = new FileTreeModel("Компьютер", File.listRoots());
+        evictor = new SubtreeEvictor(treeModel, Long.getLong("explorer.treeBudgetMb", 64) * 1024 * 1024,
+                evicted -> ioScheduler.cancelIf(key -> key instanceof FileTreeNode pending && pending.isDescendantOf(evicted)));
         tree = new JTree(treeModel);
         tree.setLargeModel(true);
+        tree.setRowHeight(ROW_HEIGHT);
         tree.setShowsRootHandles(true);
         tree.setCellRenderer(new FileTreeCellRenderer());
+        watcher.addListener(change -> SwingUtilities.invokeLater(() -> applyChange(change)));
 
         tree.addTreeExpansionListener(new TreeExpansionListener() {
             @Override
             public void treeExpanded(TreeExpansionEvent event) {
-                DefaultMutableTreeNode node = (DefaultMutableTreeNode) event.getPath().getLastPathComponent();
-                Object userObject = node.getUserObject();
-                if (userObject instanceof File file) {
-                    if (node.getChildCount() == 1 && ((DefaultMutableTreeNode) node.getChildAt(0)).getUserObject() == null) {
-                        loadChildrenAsync(node, file);
-                    }
+                FileTreeNode node = (FileTreeNode) event.getPath().getLastPathComponent();
+                evictor.expanded(node);
+                if (node.isRoot()) return;
+                refreshExpanded(node);
+                Enumeration<TreePath> expanded = tree.getExpandedDescendants(event.getPath());
+                while (expanded != null && expanded.hasMoreElements()) {
+                    TreePath descendant = expanded.nextElement();
+                    if (descendant.equals(event.getPath())) continue;
+                    FileTreeNode child = (FileTreeNode) descendant.getLastPathComponent();
+                    evictor.expanded(child);
+                    refreshExpanded(child);
                 }
             }
             @Override
-            public void treeCollapsed(TreeExpansionEvent event) { }
+            public void treeCollapsed(TreeExpansionEvent event) {
+                FileTreeNode node = (FileTreeNode) event.getPath().getLastPathComponent();
+                ioScheduler.cancelIf(key -> key instanceof FileTreeNode pending && pending.isDescendantOf(node));
+                if (!node.isRoot()) watcher.unwatchTree(node.toPath());
+                evictor.collapsed(node);
+                updateStatus();
+            }
+        });
+
+        tree.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("control Z"), "undoDelete");
+        tree.getActionMap().put("undoDelete", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undoDelete();
+            }
+        });
+
+        tree.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("control L"), "goToPath");
+        tree.getActionMap().put("goToPath", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                goToPath();
+            }
         });
 
         tree.addMouseListener(new MouseAdapter() {
@@ -62,52 +115,276 @@ public class FileExplorerGUI extends JFrame {
                 if (SwingUtilities.isRightMouseButton(e)) {
                     TreePath path = tree.getPathForLocation(e.getX(), e.getY());
                     if (path != null) {
-                        tree.setSelectionPath(path);
+                        if (!tree.isPathSelected(path)) tree.setSelectionPath(path);
                         showContextMenu(e, path);
                     }
                 }
             }
         });
 
-        add(new JScrollPane(tree));
+        searchPanel = new SearchPanel(fileIndex, this::reindex, this::revealPath);
+        sideTabs = new JTabbedPane();
+        sideTabs.addTab("Поиск", searchPanel);
+        sideTabs.addTab("Просмотр", previewPanel);
+        thumbnailPanel = new ThumbnailPanel(this::revealPath);
+        sideTabs.addTab("Эскизы", thumbnailPanel);
+        detailsPanel = new DetailsPanel(this::revealPath);
+        sideTabs.addTab("Таблица", detailsPanel);
+        sideTabs.addChangeListener(e -> updatePreview());
+        tree.addTreeSelectionListener(e -> updatePreview());
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(tree), sideTabs);
+        splitPane.setResizeWeight(0.6);
+        add(splitPane);
+        initIndex();
+        statusBar.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(new JobsPanel(jobManager), BorderLayout.CENTER);
+        southPanel.add(statusBar, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
     }
 
-    private void addDummyNode(DefaultMutableTreeNode node) {
-        node.add(new DefaultMutableTreeNode(null));
+    private void initIndex() {
+        String persistent = System.getProperty("explorer.indexFile");
+        Path file = persistent != null ? Path.of(persistent) : null;
+        if (file != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> saveIndex(file)));
+        }
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                if (file != null) fileIndex.load(file);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                if (fileIndex.size() == 0 && Boolean.getBoolean("explorer.indexOnStart")) {
+                    reindex();
+                }
+            }
+        }.execute();
     }
 
-    private void loadChildrenAsync(DefaultMutableTreeNode parentNode, File parentFile) {
-        new SwingWorker<Void, Void>() {
+    private void reindex() {
+        String configured = System.getProperty("explorer.indexRoots");
+        List<Path> roots = new ArrayList<>();
+        if (configured != null) {
+            for (String root : configured.split(File.pathSeparator)) {
+                if (!root.isBlank()) roots.add(Path.of(root));
+            }
+        } else {
+            for (File drive : File.listRoots()) {
+                roots.add(drive.toPath());
+            }
+        }
+        String persistent = System.getProperty("explorer.indexFile");
+        jobManager.submit("Индексирование: " + roots, null, job -> {
+            fileIndex.rebuild(roots, job);
+            if (persistent != null) saveIndex(Path.of(persistent));
+        }, job -> searchPanel.refresh());
+    }
+
+    private void saveIndex(Path file) {
+        try {
+            fileIndex.save(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void updatePreview() {
+        Component selected = sideTabs.getSelectedComponent();
+        if (selected == searchPanel) return;
+        TreePath path = tree.getSelectionPath();
+        if (path == null) return;
+        FileTreeNode node = (FileTreeNode) path.getLastPathComponent();
+        if (node.isRoot() || node.isInArchive()) return;
+        if (selected == previewPanel) {
+            if (!node.isDirectory()) previewPanel.show(node.toPath());
+            return;
+        }
+        Path dir = node.isDirectory() ? node.toPath() : node.toPath().getParent();
+        if (dir == null) return;
+        if (selected == thumbnailPanel) thumbnailPanel.show(dir);
+        else if (selected == detailsPanel) detailsPanel.show(dir);
+    }
+
+    private void updateStatus() {
+        statusBar.setText(String.format("Дерево: %.1f из %d МБ, вытеснено поддеревьев: %d (%.1f МБ)",
+                evictor.usageBytes() / (1024.0 * 1024.0), evictor.budgetBytes() / (1024 * 1024),
+                evictor.evictions(), evictor.evictedBytes() / (1024.0 * 1024.0)));
+    }
+
+    private void refreshExpanded(FileTreeNode node) {
+        if (!treeModel.isLoaded(node)) {
+            loadChildrenAsync(node);
+        } else if (!ioScheduler.isActive(node)) {
+            resyncAsync(treeModel.canonical(node));
+        }
+    }
+
+    private void loadChildrenAsync(FileTreeNode node) {
+        if (ioScheduler.isActive(node)) return;
+        FileTreeNode loading = treeModel.beginLoad(node);
+        watch(loading);
+        ioScheduler.submit(loading, devicePath(loading), createLoader(loading));
+    }
+
+    private void reloadChildrenAsync(FileTreeNode node) {
+        FileTreeNode loading = treeModel.beginLoad(node);
+        deferredChanges.remove(loading);
+        watch(loading);
+        ioScheduler.replace(loading, devicePath(loading), createLoader(loading));
+    }
+
+    private void resyncAsync(FileTreeNode node) {
+        watch(node);
+        ioScheduler.submit(node, devicePath(node), new SwingWorker<List<FileEntry>, Void>() {
+            @Override
+            protected List<FileEntry> doInBackground() throws IOException {
+                List<FileEntry> listing = new ArrayList<>();
+                list(node, chunk -> chunk.stream().filter(entry -> !entry.hidden()).forEach(listing::add),
+                        this::isCancelled);
+                return listing;
+            }
+
             @Override
-            protected Void doInBackground() {
-                parentNode.removeAllChildren();
-                File[] children = parentFile.listFiles();
-                if (children != null) {
-                    Arrays.stream(children)
-                            .filter(f -> !f.isHidden())
-                            .forEach(child -> {
-                                DefaultMutableTreeNode childNode = new DefaultMutableTreeNode(child);
-                                if (child.isDirectory()) {
-                                    addDummyNode(childNode);
-                                }
-                                parentNode.add(childNode);
-                            });
+            protected void done() {
+                if (isCancelled()) {
+                    afterLoad.remove(node);
+                    return;
+                }
+                try {
+                    treeModel.syncChildren(node, get());
+                } catch (Exception ignored) {
                 }
+                applyDeferred(node);
+                runAfterLoad(node);
+                updateStatus();
+            }
+        });
+    }
+
+    private void watch(FileTreeNode node) {
+        if (node.enclosingArchive() == null) watcher.watch(node.toPath());
+    }
+
+    private static Path devicePath(FileTreeNode node) {
+        FileTreeNode archive = node.enclosingArchive();
+        return archive != null ? archive.toPath() : node.toPath();
+    }
+
+    private void list(FileTreeNode node, Consumer<List<FileEntry>> sink, BooleanSupplier cancelled) throws IOException {
+        FileTreeNode archive = node.enclosingArchive();
+        if (archive == null) {
+            DirectoryLister.list(node.toPath(), LIST_CHUNK_SIZE, sink, cancelled);
+            return;
+        }
+        try (ArchiveFileSystems.Lease lease = fileOps.openArchive(archive.toPath())) {
+            DirectoryLister.list(lease.resolve(node.toPath()), LIST_CHUNK_SIZE, sink, cancelled);
+        }
+    }
+
+    private void applyChange(DirectoryWatcher.Change change) {
+        FileTreeNode node = findNodeByFile(change.directory().toFile());
+        if (node == null || !treeModel.isLoaded(node)) return;
+        node = treeModel.canonical(node);
+        if (change.overflow()) {
+            reloadChildrenAsync(node);
+            return;
+        }
+        if (ioScheduler.isActive(node)) {
+            deferredChanges.computeIfAbsent(node, n -> new ArrayList<>()).add(change);
+            return;
+        }
+        applyChange(node, change);
+    }
+
+    private void applyChange(FileTreeNode node, DirectoryWatcher.Change change) {
+        Map<String, FileEntry> present = new HashMap<>();
+        Set<String> removed = new HashSet<>(change.removed());
+        change.present().forEach((name, entry) -> {
+            if (entry.hidden()) removed.add(name);
+            else present.put(name, entry);
+        });
+        for (String name : removed) {
+            watcher.unwatchTree(change.directory().resolve(name));
+        }
+        treeModel.applyChanges(node, present, removed);
+        updateStatus();
+    }
+
+    private void applyDeferred(FileTreeNode node) {
+        List<DirectoryWatcher.Change> changes = deferredChanges.remove(node);
+        if (changes == null) return;
+        for (DirectoryWatcher.Change change : changes) {
+            if (change.overflow()) {
+                reloadChildrenAsync(node);
+                return;
+            }
+            applyChange(node, change);
+        }
+    }
+
+    private void refreshLoaded(FileTreeNode node) {
+        if (node == null || node.isRoot() || !treeModel.isLoaded(node)) return;
+        FileTreeNode loaded = treeModel.canonical(node);
+        if (ioScheduler.isActive(loaded)) {
+            afterLoad.computeIfAbsent(loaded, n -> new ArrayList<>()).add(() -> refreshLoaded(loaded));
+        } else {
+            resyncAsync(loaded);
+        }
+    }
+
+    private SwingWorker<Void, List<FileEntry>> createLoader(FileTreeNode parentNode) {
+        return new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                list(parentNode, this::publish, this::isCancelled);
                 return null;
             }
+
+            @Override
+            protected void process(List<List<FileEntry>> chunks) {
+                if (isCancelled()) return;
+                for (List<FileEntry> chunk : chunks) {
+                    treeModel.appendChildren(parentNode, chunk.stream().filter(entry -> !entry.hidden()).toList());
+                }
+            }
+
             @Override
             protected void done() {
-                treeModel.reload(parentNode);
+                if (isCancelled()) {
+                    if (!ioScheduler.isActive(parentNode)) {
+                        deferredChanges.remove(parentNode);
+                        afterLoad.remove(parentNode);
+                        watcher.unwatch(parentNode.toPath());
+                        treeModel.unload(parentNode);
+                    }
+                } else {
+                    treeModel.finishLoad(parentNode);
+                    applyDeferred(parentNode);
+                    evictor.enforce();
+                    runAfterLoad(parentNode);
+                }
+                updateStatus();
             }
-        }.execute();
+        };
     }
 
     private void showContextMenu(MouseEvent e, TreePath path) {
         JPopupMenu menu = new JPopupMenu();
-        DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
-        Object userObject = node.getUserObject();
-        if (!(userObject instanceof File file)) return;
-        boolean isRootDrive = Arrays.asList(File.listRoots()).contains(file);
+        FileTreeNode node = treeModel.canonical((FileTreeNode) path.getLastPathComponent());
+        if (node.isRoot()) return;
+        if (node.isInArchive()) {
+            JMenuItem extractItem = new JMenuItem("Извлечь в...");
+            extractItem.addActionListener(ev -> extractFromArchive(node));
+            menu.add(extractItem);
+            menu.show(tree, e.getX(), e.getY());
+            return;
+        }
+        File file = node.toFile();
+        boolean isRootDrive = node.isDrive();
 
         JMenuItem createFolderItem = new JMenuItem("Создать папку");
         createFolderItem.setEnabled(!isRootDrive && file.isDirectory());
@@ -115,9 +392,7 @@ public class FileExplorerGUI extends JFrame {
             String name = JOptionPane.showInputDialog(this, "Имя новой папки:");
             File newFolder = fileOps.createFolder(file, name);
             if (newFolder != null) {
-                DefaultMutableTreeNode newNode = new DefaultMutableTreeNode(newFolder);
-                node.add(newNode);
-                treeModel.reload(node);
+                treeModel.insertChild(node, DirectoryLister.readEntry(newFolder.toPath()));
             } else {
                 showErrorDialog("Ошибка создания папки");
             }
@@ -127,34 +402,37 @@ public class FileExplorerGUI extends JFrame {
         JMenuItem deleteItem = new JMenuItem("Удалить");
         deleteItem.setEnabled(!isRootDrive);
         deleteItem.addActionListener(ev -> {
+            List<File> selected = selectedFiles();
             int confirm = JOptionPane.showConfirmDialog(
                     this,
-                    "Удалить '" + file.getName() + "'?",
+                    selected.size() > 1 ? "Удалить объекты: " + selected.size() + "?" : "Удалить '" + file.getName() + "'?",
                     "Подтверждение",
                     JOptionPane.YES_NO_OPTION
             );
-            if (confirm == JOptionPane.YES_OPTION) {
-                if (fileOps.deleteFile(file)) {
-                    DefaultMutableTreeNode parent = (DefaultMutableTreeNode) node.getParent();
-                    if (parent != null) {
-                        parent.remove(node);
-                        treeModel.reload(parent);
-                    }
-                } else {
-                    showErrorDialog("Ошибка удаления");
-                }
+            if (confirm != JOptionPane.YES_OPTION) return;
+            if (selected.size() > 1) {
+                deleteBatch(selected);
+            } else {
+                deleteNode(node, file);
             }
         });
         menu.add(deleteItem);
 
+        JMenuItem undoDeleteItem = new JMenuItem("Отменить удаление");
+        undoDeleteItem.setEnabled(fileOps.canUndoDelete());
+        undoDeleteItem.addActionListener(ev -> undoDelete());
+        menu.add(undoDeleteItem);
+
         JMenuItem renameItem = new JMenuItem("Переименовать");
         renameItem.setEnabled(!isRootDrive);
         renameItem.addActionListener(ev -> {
             String newName = JOptionPane.showInputDialog(this, "Новое имя:", file.getName());
             File renamed = fileOps.renameFile(file, newName);
             if (renamed != null) {
-                node.setUserObject(renamed);
-                treeModel.reload(node);
+                FileTreeNode renamedNode = treeModel.renameChild(node, DirectoryLister.readEntry(renamed.toPath()));
+                if (renamedNode != null) {
+                    tree.setSelectionPath(treeModel.pathTo(renamedNode));
+                }
             } else {
                 showErrorDialog("Ошибка переименования");
             }
@@ -163,63 +441,433 @@ public class FileExplorerGUI extends JFrame {
 
         JMenuItem copyItem = new JMenuItem("Копировать");
         copyItem.setEnabled(!isRootDrive);
-        copyItem.addActionListener(ev -> fileOps.copyFile(file));
+        copyItem.addActionListener(ev -> fileOps.copyFiles(selectedFiles(), selectedFolders()));
         menu.add(copyItem);
 
         JMenuItem cutItem = new JMenuItem("Вырезать");
         cutItem.setEnabled(!isRootDrive);
-        cutItem.addActionListener(ev -> fileOps.cutFile(file));
+        cutItem.addActionListener(ev -> fileOps.cutFiles(selectedFiles(), selectedFolders()));
         menu.add(cutItem);
 
         JMenuItem pasteItem = new JMenuItem("Вставить");
         pasteItem.setEnabled(file.isDirectory() && fileOps.hasClipboard());
         pasteItem.addActionListener(ev -> {
-            File pasted = fileOps.pasteFile(file);
-            if (pasted != null) {
-                loadChildrenAsync(node, file);
-            } else {
-                showErrorDialog("Ошибка вставки");
-            }
+            FileExplorer.ClipboardContent content = fileOps.takeClipboard();
+            if (content == null) return;
+            String what = content.files().size() == 1
+                    ? content.files().get(0).getAbsolutePath() : "объектов: " + content.files().size();
+            String title = (content.cut() ? "Перемещение: " : "Копирование: ") + what + " → " + file.getAbsolutePath();
+            runBatch(title, file.toPath(), job -> fileOps.planPaste(content, file), "Ошибка вставки");
         });
         menu.add(pasteItem);
 
+        JMenuItem syncItem = new JMenuItem("Вставить с синхронизацией...");
+        syncItem.setEnabled(file.isDirectory() && !fileOps.getClipboardFolders().isEmpty());
+        syncItem.addActionListener(ev -> syncPaste(file));
+        menu.add(syncItem);
+
+        JMenuItem compressItem = new JMenuItem("Сжать в ZIP");
+        compressItem.setEnabled(!isRootDrive);
+        compressItem.addActionListener(ev -> compressToZip(file));
+        menu.add(compressItem);
+
+        if (node.isArchive()) {
+            JMenuItem extractItem = new JMenuItem("Извлечь в...");
+            extractItem.addActionListener(ev -> extractFromArchive(node));
+            menu.add(extractItem);
+        }
+
+        JMenuItem grepItem = new JMenuItem("Найти в содержимом...");
+        grepItem.setEnabled(file.isDirectory());
+        grepItem.addActionListener(ev -> new ContentSearchDialog(this, fileOps, file, this::revealPath).setVisible(true));
+        menu.add(grepItem);
+
+        JMenuItem diskUsageItem = new JMenuItem("Анализ занятого места");
+        diskUsageItem.setEnabled(file.isDirectory());
+        diskUsageItem.addActionListener(ev ->
+                new DiskUsageDialog(this, fileOps.analyzeDiskUsage(file), this::revealPath).setVisible(true));
+        menu.add(diskUsageItem);
+
+        JMenuItem duplicatesItem = new JMenuItem("Найти дубликаты");
+        duplicatesItem.setEnabled(file.isDirectory());
+        duplicatesItem.addActionListener(ev -> findDuplicates(file));
+        menu.add(duplicatesItem);
+
         JMenuItem infoItem = new JMenuItem("Информация");
         infoItem.setEnabled(!isRootDrive);
         infoItem.addActionListener(ev -> {
-            String info = fileOps.getFileInfo(file);
-            showInfoDialog(info, "Информация о файле/папке");
+            List<File> selected = selectedFiles();
+            if (selected.size() > 1) showFileInfos(selected);
+            else showFileInfo(file);
         });
         menu.add(infoItem);
 
+        menu.addSeparator();
+        JMenuItem goToItem = new JMenuItem("Перейти к пути...");
+        goToItem.addActionListener(ev -> goToPath());
+        menu.add(goToItem);
+
         menu.show(tree, e.getX(), e.getY());
     }
 
+    private void compressToZip(File source) {
+        ZipCompressor.Result[] result = new ZipCompressor.Result[1];
+        jobManager.submit("Сжатие: " + source.getAbsolutePath(), source.toPath(), job -> {
+            DirectorySize total = fileOps.measure(source);
+            job.setTotals(total.bytes(), total.files());
+            result[0] = fileOps.compressToZip(source, job);
+        }, job -> {
+            refreshLoaded(findNodeByFile(source.getParentFile()));
+            if (job.getState() == FileJob.State.DONE) {
+                showInfoDialog(result[0].archive() + "\n" + result[0].summary(), "Архив создан");
+            } else if (job.getState() == FileJob.State.FAILED) {
+                showErrorDialog("Ошибка сжатия: " + job.getError());
+            }
+        });
+    }
+
+    private void extractFromArchive(FileTreeNode node) {
+        FileTreeNode archive = node.enclosingArchive();
+        JFileChooser chooser = new JFileChooser(archive.toFile().getParentFile());
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Извлечь в");
+        if (chooser.showDialog(this, "Извлечь") != JFileChooser.APPROVE_OPTION) return;
+        File targetDir = chooser.getSelectedFile();
+        String name = node.getName();
+        if (node.isArchive() && name.lastIndexOf('.') > 0) name = name.substring(0, name.lastIndexOf('.'));
+        String targetName = name;
+        jobManager.submit("Извлечение: " + node.toPath() + " → " + targetDir.getAbsolutePath(), targetDir.toPath(), job -> {
+            try (ArchiveFileSystems.Lease lease = fileOps.openArchive(archive.toPath())) {
+                Path entry = lease.resolve(node.toPath());
+                job.setTotals(fileOps.measureArchiveEntry(entry), -1);
+                fileOps.extractArchiveEntry(entry, targetName, targetDir, job);
+            }
+        }, job -> {
+            refreshLoaded(findNodeByFile(targetDir));
+            if (job.getState() == FileJob.State.FAILED) {
+                showErrorDialog("Ошибка извлечения: " + job.getError());
+            }
+        });
+    }
+
+    private void findDuplicates(File dir) {
+        DuplicateReport[] report = new DuplicateReport[1];
+        jobManager.submit("Поиск дубликатов: " + dir.getAbsolutePath(), dir.toPath(),
+                job -> report[0] = fileOps.findDuplicates(dir, job),
+                job -> {
+                    if (job.getState() == FileJob.State.DONE) {
+                        new DuplicatesDialog(this, fileOps, dir, report[0]).setVisible(true);
+                    } else if (job.getState() == FileJob.State.FAILED) {
+                        showErrorDialog("Ошибка поиска дубликатов: " + job.getError());
+                    }
+                });
+    }
+
+    private void syncPaste(File targetDir) {
+        List<File> sources = fileOps.getClipboardFolders();
+        if (sources.isEmpty()) return;
+        JCheckBox contentBox = new JCheckBox("Сравнивать содержимое (медленнее)");
+        JCheckBox deleteBox = new JCheckBox("Удалять лишние файлы в назначении");
+        Object[] message = {"Синхронизировать в " + targetDir.getAbsolutePath() + ":", sources.size() == 1
+                ? sources.get(0).getName() : "папок: " + sources.size(), contentBox, deleteBox};
+        int confirm = JOptionPane.showConfirmDialog(this, message, "Синхронизация", JOptionPane.OK_CANCEL_OPTION);
+        if (confirm != JOptionPane.OK_OPTION) return;
+        SyncEngine.Options options = new SyncEngine.Options(contentBox.isSelected(), deleteBox.isSelected());
+
+        List<SyncEngine.Plan> plans = new ArrayList<>();
+        BatchReport[] report = new BatchReport[1];
+        jobManager.submit("Синхронизация: " + sources.get(0).getAbsolutePath() + " → " + targetDir.getAbsolutePath(),
+                targetDir.toPath(), job -> {
+                    plans.addAll(fileOps.planSync(sources, targetDir, options, job::isCancelled));
+                    job.setTotals(plans.stream().mapToLong(SyncEngine.Plan::totalBytes).sum(),
+                            plans.stream().mapToLong(SyncEngine.Plan::totalFiles).sum());
+                    for (SyncEngine.Plan plan : plans) {
+                        BatchReport next = fileOps.executeSync(plan, job);
+                        report[0] = report[0] == null ? next : report[0].merge(next);
+                        if (next.cancelled()) throw new CancellationException();
+                    }
+                    if (report[0] != null && !report[0].isSuccess()) {
+                        throw new IOException("ошибок: " + report[0].failureCount());
+                    }
+                }, job -> {
+                    refreshLoaded(findNodeByFile(targetDir));
+                    for (SyncEngine.Plan plan : plans) {
+                        refreshLoaded(treeModel.findLoaded(plan.target()));
+                    }
+                    if (report[0] != null && report[0].failureCount() > 0) {
+                        showReportDialog(report[0].summary(), "Ошибка синхронизации");
+                    } else if (job.getState() == FileJob.State.FAILED) {
+                        showErrorDialog("Ошибка синхронизации: " + job.getError());
+                    } else if (job.getState() == FileJob.State.DONE) {
+                        StringBuilder text = new StringBuilder();
+                        for (SyncEngine.Plan plan : plans) {
+                            text.append(plan.target()).append(": ").append(plan.summary()).append("\n");
+                        }
+                        showInfoDialog(text.toString(), "Синхронизация завершена");
+                    }
+                });
+    }
+
+    private interface Planner {
+        BatchEngine.Plan plan(FileJob job) throws IOException;
+    }
+
+    private void deleteBatch(List<File> files) {
+        runBatch("Удаление: объектов " + files.size(), null, job -> fileOps.planDelete(files, USE_TRASH), "Ошибка удаления",
+                report -> {
+                    if (!USE_TRASH || report.failures().isEmpty()) return;
+                    List<File> failed = report.failures().stream().map(failure -> failure.path().toFile()).toList();
+                    if (confirmPermanentDelete(failed.size())) {
+                        runBatch("Безвозвратное удаление: объектов " + failed.size(), null,
+                                job -> fileOps.planDelete(failed, false), "Ошибка удаления");
+                    }
+                });
+    }
+
+    private boolean confirmPermanentDelete(int count) {
+        return JOptionPane.showConfirmDialog(this,
+                "Не удалось переместить в корзину объектов: " + count + ".\nУдалить безвозвратно?",
+                "Подтверждение", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
+    private void runBatch(String title, Path device, Planner planner, String errorTitle) {
+        runBatch(title, device, planner, errorTitle, report -> {
+        });
+    }
+
+    private void runBatch(String title, Path device, Planner planner, String errorTitle, Consumer<BatchReport> onFailure) {
+        BatchEngine.Plan[] plan = new BatchEngine.Plan[1];
+        BatchReport[] report = new BatchReport[1];
+        jobManager.submit(title, device, job -> {
+            plan[0] = planner.plan(job);
+            job.setTotals(plan[0].totalBytes(), plan[0].totalFiles());
+            report[0] = fileOps.executeBatch(plan[0], job);
+            if (report[0].cancelled()) {
+                throw new CancellationException();
+            }
+            if (!report[0].isSuccess()) {
+                throw new IOException("ошибок: " + report[0].failureCount());
+            }
+        }, job -> {
+            if (plan[0] != null) {
+                for (Path dir : plan[0].affectedDirectories()) {
+                    refreshLoaded(treeModel.findLoaded(dir));
+                }
+            }
+            if (report[0] != null && report[0].failureCount() > 0) {
+                showReportDialog(report[0].summary(), errorTitle);
+                onFailure.accept(report[0]);
+            } else if (job.getState() == FileJob.State.FAILED) {
+                showErrorDialog(errorTitle + ": " + job.getError());
+            }
+        });
+    }
+
+    private void deleteNode(FileTreeNode node, File file) {
+        if (!USE_TRASH) {
+            deletePermanently(node.getParent(), node, file);
+            return;
+        }
+        FileTreeNode parent = node.getParent();
+        treeModel.removeChild(node);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                fileOps.moveToTrash(file);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showErrorDialog("Не удалось переместить в корзину: " + cause.getMessage());
+                    if (confirmPermanentDelete(1)) {
+                        deletePermanently(parent, null, file);
+                    } else {
+                        refreshLoaded(parent);
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    private void deletePermanently(FileTreeNode parent, FileTreeNode node, File file) {
+        DeleteReport[] report = new DeleteReport[1];
+        jobManager.submit("Удаление: " + file.getAbsolutePath(), null, job -> {
+            DirectorySize total = fileOps.measure(file);
+            job.setTotals(total.bytes(), total.files() + total.directories() + 1);
+            report[0] = fileOps.deleteTree(file, job);
+            if (report[0].cancelled()) {
+                throw new CancellationException();
+            }
+            if (!report[0].isSuccess()) {
+                throw new IOException("не удалось удалить " + report[0].failureCount() + " объектов");
+            }
+        }, job -> {
+            if (job.getState() == FileJob.State.DONE) {
+                if (node != null) treeModel.removeChild(node);
+            } else {
+                refreshLoaded(parent);
+                if (report[0] != null && report[0].failureCount() > 0) {
+                    showReportDialog(report[0].summary(), "Ошибка удаления");
+                } else if (job.getState() == FileJob.State.FAILED) {
+                    showErrorDialog("Ошибка удаления: " + job.getError());
+                }
+            }
+        });
+    }
+
+    private void undoDelete() {
+        if (!fileOps.canUndoDelete()) return;
+        new SwingWorker<File, Void>() {
+            @Override
+            protected File doInBackground() throws IOException {
+                return fileOps.undoDelete();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    File restored = get();
+                    if (restored == null) return;
+                    FileTreeNode parent = findNodeByFile(restored.getParentFile());
+                    if (parent != null) {
+                        treeModel.insertChild(parent, DirectoryLister.readEntry(restored.toPath()));
+                    }
+                } catch (Exception ex) {
+                    showErrorDialog("Ошибка восстановления: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showFileInfo(File file) {
+        new SwingWorker<FileInfo, DirectorySize>() {
+            @Override
+            protected FileInfo doInBackground() {
+                return fileOps.getFileInfo(file, this::publish);
+            }
+
+            @Override
+            protected void process(List<DirectorySize> chunks) {
+                DirectorySize partial = chunks.get(chunks.size() - 1);
+                setTitle(String.format("Проводник — подсчет: %d файлов, %d папок, %.2f МБ",
+                        partial.files(), partial.directories(), partial.bytes() / (1024.0 * 1024.0)));
+            }
+
+            @Override
+            protected void done() {
+                setTitle("Проводник");
+                try {
+                    showInfoDialog(get().format(), "Информация о файле/папке");
+                } catch (Exception ex) {
+                    showErrorDialog("Ошибка расчета размера");
+                }
+            }
+        }.execute();
+    }
+
+    private List<File> selectedFiles() {
+        List<File> files = new ArrayList<>();
+        TreePath[] paths = tree.getSelectionPaths();
+        if (paths == null) return files;
+        for (TreePath path : paths) {
+            FileTreeNode node = (FileTreeNode) path.getLastPathComponent();
+            if (!node.isRoot()) files.add(node.toFile());
+        }
+        return files;
+    }
+
+    private List<File> selectedFolders() {
+        List<File> folders = new ArrayList<>();
+        TreePath[] paths = tree.getSelectionPaths();
+        if (paths == null) return folders;
+        for (TreePath path : paths) {
+            FileTreeNode node = (FileTreeNode) path.getLastPathComponent();
+            if (!node.isRoot() && node.isDirectory() && !node.isInArchive()) folders.add(node.toFile());
+        }
+        return folders;
+    }
+
+    private void showFileInfos(List<File> files) {
+        new SwingWorker<List<FileInfo>, Void>() {
+            @Override
+            protected List<FileInfo> doInBackground() {
+                return fileOps.getFileInfos(files);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    new FileInfoDialog(FileExplorerGUI.this, get()).setVisible(true);
+                } catch (Exception ex) {
+                    showErrorDialog("Ошибка чтения атрибутов: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
     private void showInfoDialog(String message, String title) {
         JOptionPane.showMessageDialog(this, message, title, JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private void showReportDialog(String report, String title) {
+        JTextArea text = new JTextArea(report, 20, 80);
+        text.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(text), title, JOptionPane.WARNING_MESSAGE);
+    }
+
     private void showErrorDialog(String message) {
         JOptionPane.showMessageDialog(this, message, "Ошибка", JOptionPane.ERROR_MESSAGE);
     }
 
-    private DefaultMutableTreeNode findNodeByFile(File targetFile) {
-        DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
-        return findNodeRecursive(root, targetFile);
+    private FileTreeNode findNodeByFile(File targetFile) {
+        return targetFile != null ? treeModel.findNode(targetFile.toPath()) : null;
     }
 
-    private DefaultMutableTreeNode findNodeRecursive(DefaultMutableTreeNode node, File targetFile) {
-        Object userObject = node.getUserObject();
-        if (userObject instanceof File file && file.equals(targetFile)) {
-            return node;
+    private void goToPath() {
+        String input = JOptionPane.showInputDialog(this, "Путь:");
+        if (input == null || input.isBlank()) return;
+        try {
+            revealPath(Path.of(input.trim()).toAbsolutePath().normalize());
+        } catch (InvalidPathException ex) {
+            showErrorDialog("Некорректный путь: " + input);
         }
-        for (int i = 0; i < node.getChildCount(); i++) {
-            DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-            DefaultMutableTreeNode found = findNodeRecursive(child, targetFile);
-            if (found != null) {
-                return found;
+    }
+
+    private void revealPath(Path target) {
+        FileTreeNode node = treeModel.findNode(target.getRoot());
+        if (node == null) {
+            showErrorDialog("Путь не найден: " + target);
+            return;
+        }
+        for (Path name : target) {
+            node = treeModel.canonical(node);
+            if (!treeModel.isLoaded(node) || ioScheduler.isActive(node)) {
+                afterLoad.computeIfAbsent(node, n -> new ArrayList<>()).add(() -> revealPath(target));
+                if (!treeModel.isLoaded(node)) {
+                    tree.expandPath(treeModel.pathTo(node));
+                }
+                return;
             }
+            FileTreeNode child = treeModel.childNamed(node, name.toString());
+            if (child == null) {
+                showErrorDialog("Путь не найден: " + target);
+                return;
+            }
+            node = child;
         }
-        return null;
+        TreePath path = treeModel.pathTo(node);
+        tree.setSelectionPath(path);
+        tree.scrollPathToVisible(path);
+    }
+
+    private void runAfterLoad(FileTreeNode node) {
+        List<Runnable> callbacks = afterLoad.remove(node);
+        if (callbacks != null) callbacks.forEach(Runnable::run);
     }
 
     public static void main(String[] args) {
@@ -231,12 +879,12 @@ public class FileExplorerGUI extends JFrame {
         public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected,
                                                       boolean expanded, boolean leaf, int row, boolean hasFocus) {
             super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
-            DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
-            Object userObject = node.getUserObject();
-            if (userObject instanceof File file) {
-                setText(fileSystemView.getSystemDisplayName(file));
-                setIcon(fileSystemView.getSystemIcon(file));
-                if (Arrays.asList(File.listRoots()).contains(file)) {
+            FileTreeNode node = (FileTreeNode) value;
+            if (!node.isRoot()) {
+                Runnable repaint = () -> treeModel.nodeChanged(node);
+                setText(iconCache.getDisplayName(node, repaint));
+                setIcon(iconCache.getIcon(node, repaint));
+                if (node.isDrive()) {
                     setForeground(Color.GRAY);
                 }
             }
@@ -0,0 +1,116 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileSystemView;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class FileIconCache {
+    private static final Set<String> PER_PATH_EXTENSIONS = Set.of("exe", "lnk", "ico", "url", "cpl", "scr", "msc");
+    private static final String DIRECTORY_KEY = "<dir>";
+    private static final String NO_EXTENSION_KEY = "<file>";
+
+    private record DisplayNameKey(File file) {
+    }
+
+    private final FileSystemView fileSystemView;
+    private final int maxPathEntries;
+    private final Map<String, Icon> typeIcons = new ConcurrentHashMap<>();
+    private final Map<File, Icon> pathIcons;
+    private final Map<File, String> displayNames = new ConcurrentHashMap<>();
+    private final Map<Object, List<Runnable>> pending = new HashMap<>();
+    private final ExecutorService resolver = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "icon-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Icon directoryFallback = UIManager.getIcon("FileView.directoryIcon");
+    private final Icon fileFallback = UIManager.getIcon("FileView.fileIcon");
+
+    public FileIconCache(FileSystemView fileSystemView, int maxPathEntries) {
+        this.fileSystemView = fileSystemView;
+        this.maxPathEntries = maxPathEntries;
+        this.pathIcons = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, Icon> eldest) {
+                return size() > FileIconCache.this.maxPathEntries;
+            }
+        });
+    }
+
+    public Icon getIcon(FileTreeNode node, Runnable onResolved) {
+        String typeKey = typeKey(node);
+        if (typeKey != null) {
+            Icon icon = typeIcons.get(typeKey);
+            if (icon != null) return icon;
+            File file = node.toFile();
+            resolve(typeKey, onResolved, () -> typeIcons.put(typeKey, systemIcon(file, node.isDirectory())));
+        } else {
+            File file = node.toFile();
+            Icon icon = pathIcons.get(file);
+            if (icon != null) return icon;
+            resolve(file, onResolved, () -> pathIcons.put(file, systemIcon(file, node.isDirectory())));
+        }
+        return node.isDirectory() ? directoryFallback : fileFallback;
+    }
+
+    public String getDisplayName(FileTreeNode node, Runnable onResolved) {
+        if (!node.isDrive()) return node.getName();
+        File file = node.toFile();
+        String name = displayNames.get(file);
+        if (name != null) return name;
+        resolve(new DisplayNameKey(file), onResolved, () -> {
+            String displayName;
+            try {
+                displayName = fileSystemView.getSystemDisplayName(file);
+            } catch (RuntimeException e) {
+                displayName = null;
+            }
+            displayNames.put(file, displayName == null || displayName.isEmpty() ? node.getName() : displayName);
+        });
+        return node.getName();
+    }
+
+    private String typeKey(FileTreeNode node) {
+        if (node.isDrive()) return null;
+        if (node.isDirectory()) return DIRECTORY_KEY;
+        String name = node.getName();
+        int dotIndex = name.lastIndexOf('.');
+        if (dotIndex <= 0 || dotIndex == name.length() - 1) return NO_EXTENSION_KEY;
+        String extension = name.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+        return PER_PATH_EXTENSIONS.contains(extension) ? null : extension;
+    }
+
+    private Icon systemIcon(File file, boolean directory) {
+        try {
+            Icon icon = fileSystemView.getSystemIcon(file);
+            if (icon != null) return icon;
+        } catch (RuntimeException ignored) {
+        }
+        return directory ? directoryFallback : fileFallback;
+    }
+
+    private void resolve(Object key, Runnable onResolved, Runnable lookup) {
+        synchronized (pending) {
+            List<Runnable> waiting = pending.get(key);
+            if (waiting != null) {
+                waiting.add(onResolved);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(onResolved);
+            pending.put(key, waiting);
+        }
+        resolver.execute(() -> {
+            lookup.run();
+            List<Runnable> waiting;
+            synchronized (pending) {
+                waiting = pending.remove(key);
+            }
+            SwingUtilities.invokeLater(() -> waiting.forEach(Runnable::run));
+        });
+    }
+}
@@ -0,0 +1,461 @@
+package org.warm4ik.lab;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+public class FileIndex {
+    private static final int FORMAT_VERSION = 1;
+    private static final int TRIGRAM_BUCKETS = 1 << 18;
+    private static final int NO_PARENT = -1;
+    private static final int NO_CHILD = -1;
+
+    public record Hit(Path path, boolean directory, long size, long modified) {
+    }
+
+    private record Child(Path path, String name, boolean directory, long size, long modified) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ForkJoinPool pool;
+    private final DirectoryWatcher watcher;
+    private final int watchLimit;
+    private final Set<Path> watched = new HashSet<>();
+
+    private byte[] names;
+    private int[] offsets;
+    private int[] parents;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private long[] sizes;
+    private long[] modified;
+    private BitSet directories;
+    private BitSet deleted;
+    private int count;
+    private int liveCount;
+    private int[][] postings;
+    private int[] postingCounts;
+    private Map<String, Integer> directoryIds;
+    private volatile long generation;
+
+    public FileIndex(int parallelism, DirectoryWatcher watcher, int watchLimit) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.watcher = watcher;
+        this.watchLimit = watchLimit;
+        clear();
+        if (watcher != null) watcher.addListener(this::apply);
+    }
+
+    private void clear() {
+        generation++;
+        names = new byte[1 << 16];
+        offsets = new int[1025];
+        parents = new int[1024];
+        firstChild = new int[1024];
+        nextSibling = new int[1024];
+        sizes = new long[1024];
+        modified = new long[1024];
+        directories = new BitSet();
+        deleted = new BitSet();
+        count = 0;
+        liveCount = 0;
+        postings = new int[TRIGRAM_BUCKETS][];
+        postingCounts = new int[TRIGRAM_BUCKETS];
+        directoryIds = new HashMap<>();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild(List<Path> roots, ProgressListener listener) throws IOException {
+        List<CrawlTask> tasks = new ArrayList<>();
+        long started;
+        unwatchAll();
+        lock.writeLock().lock();
+        try {
+            clear();
+            started = generation;
+            for (Path root : roots) {
+                Path absolute = root.toAbsolutePath().normalize();
+                int id = add(NO_PARENT, absolute.toString(), true, 0, 0);
+                tasks.add(new CrawlTask(id, absolute, listener));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (CrawlTask task : tasks) {
+            pool.execute(task);
+        }
+        for (CrawlTask task : tasks) {
+            task.join();
+        }
+        if (generation != started) throw new CancellationException();
+    }
+
+    public List<Hit> search(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) return List.of();
+        boolean glob = q.indexOf('*') >= 0 || q.indexOf('?') >= 0;
+        Predicate<String> matcher = glob
+                ? globPattern(q).asMatchPredicate()
+                : name -> name.toLowerCase(Locale.ROOT).contains(q);
+        String[] fragments = glob ? q.split("[*?]+") : new String[]{q};
+
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int[] candidates = null;
+            int candidateCount = count;
+            for (String fragment : fragments) {
+                for (int i = 0; i + 3 <= fragment.length(); i++) {
+                    int bucket = trigram(fragment.charAt(i), fragment.charAt(i + 1), fragment.charAt(i + 2));
+                    int[] list = postings[bucket];
+                    int listCount = postingCounts[bucket];
+                    if (list == null) return hits;
+                    if (candidates == null) {
+                        candidates = list;
+                        candidateCount = listCount;
+                    } else {
+                        candidates = intersect(candidates, candidateCount, list, listCount);
+                        candidateCount = candidates.length;
+                    }
+                    if (candidateCount == 0) return hits;
+                }
+            }
+            for (int i = 0; i < candidateCount && hits.size() < limit; i++) {
+                int id = candidates != null ? candidates[i] : i;
+                if (deleted.get(id)) continue;
+                if (matcher.test(nameAt(id))) {
+                    hits.add(new Hit(pathOf(id), directories.get(id), sizes[id], modified[id]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits;
+    }
+
+    public void apply(DirectoryWatcher.Change change) {
+        List<CrawlTask> crawls = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            Integer dirId = directoryIds.get(change.directory().toString());
+            if (dirId == null) return;
+            if (change.overflow()) {
+                for (int id = firstChild[dirId]; id != NO_CHILD; id = nextSibling[id]) {
+                    if (!deleted.get(id)) markDeleted(id);
+                }
+                firstChild[dirId] = NO_CHILD;
+                crawls.add(new CrawlTask(dirId, change.directory(), ProgressListener.NONE));
+            } else {
+                Map<String, FileEntry> present = new HashMap<>(change.present());
+                int previous = NO_CHILD;
+                for (int id = firstChild[dirId]; id != NO_CHILD; id = nextSibling[id]) {
+                    if (!deleted.get(id)) update(id, change.removed(), present);
+                    if (!deleted.get(id)) {
+                        previous = id;
+                    } else if (previous == NO_CHILD) {
+                        firstChild[dirId] = nextSibling[id];
+                    } else {
+                        nextSibling[previous] = nextSibling[id];
+                    }
+                }
+                for (FileEntry entry : present.values()) {
+                    int id = add(dirId, entry.name(), entry.directory(), entry.size(), entry.modified());
+                    if (entry.directory()) crawls.add(new CrawlTask(id, entry.path(), ProgressListener.NONE));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (CrawlTask task : crawls) {
+            pool.execute(task);
+        }
+    }
+
+    private void update(int id, Set<String> removed, Map<String, FileEntry> present) {
+        String name = nameAt(id);
+        FileEntry entry = present.get(name);
+        if (removed.contains(name) || entry != null && entry.directory() != directories.get(id)) {
+            markDeleted(id);
+        } else if (entry != null) {
+            sizes[id] = entry.size();
+            modified[id] = entry.modified();
+            present.remove(name);
+        }
+    }
+
+    private void markDeleted(int id) {
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(id);
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            if (deleted.get(current)) continue;
+            deleted.set(current);
+            liveCount--;
+            if (!directories.get(current)) continue;
+            Path path = pathOf(current);
+            directoryIds.remove(path.toString());
+            unwatch(path);
+            for (int child = firstChild[current]; child != NO_CHILD; child = nextSibling[child]) {
+                pending.push(child);
+            }
+        }
+    }
+
+    private int add(int parent, String name, boolean directory, long size, long mtime) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int id = count;
+        ensureCapacity(id + 1, offsets[id] + bytes.length);
+        System.arraycopy(bytes, 0, names, offsets[id], bytes.length);
+        offsets[id + 1] = offsets[id] + bytes.length;
+        parents[id] = parent;
+        firstChild[id] = NO_CHILD;
+        nextSibling[id] = parent == NO_PARENT ? NO_CHILD : firstChild[parent];
+        if (parent != NO_PARENT) firstChild[parent] = id;
+        sizes[id] = size;
+        modified[id] = mtime;
+        if (directory) {
+            directories.set(id);
+            directoryIds.put(pathOf(id).toString(), id);
+        }
+        count++;
+        liveCount++;
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            addPosting(trigram(lower.charAt(i), lower.charAt(i + 1), lower.charAt(i + 2)), id);
+        }
+        return id;
+    }
+
+    private void addPosting(int bucket, int id) {
+        int[] list = postings[bucket];
+        int n = postingCounts[bucket];
+        if (list == null) {
+            list = postings[bucket] = new int[4];
+        } else if (list[n - 1] == id) {
+            return;
+        } else if (n == list.length) {
+            list = postings[bucket] = Arrays.copyOf(list, n + (n >> 1) + 1);
+        }
+        list[n] = id;
+        postingCounts[bucket] = n + 1;
+    }
+
+    private void ensureCapacity(int entries, int bytes) {
+        if (parents.length < entries) {
+            int capacity = parents.length + (parents.length >> 1);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            modified = Arrays.copyOf(modified, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        if (names.length < bytes) {
+            names = Arrays.copyOf(names, Math.max(bytes, names.length + (names.length >> 1)));
+        }
+    }
+
+    private String nameAt(int id) {
+        return new String(names, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    private Path pathOf(int id) {
+        Deque<String> parts = new ArrayDeque<>();
+        for (int i = id; i != NO_PARENT; i = parents[i]) {
+            parts.push(nameAt(i));
+        }
+        Path path = Paths.get(parts.pop());
+        for (String part : parts) {
+            path = path.resolve(part);
+        }
+        return path;
+    }
+
+    private static int trigram(char a, char b, char c) {
+        int h = (a * 31 + b) * 31 + c;
+        h ^= h >>> 15;
+        h *= 0x2c1b3c6d;
+        return (h ^ (h >>> 12)) & (TRIGRAM_BUCKETS - 1);
+    }
+
+    private static int[] intersect(int[] a, int aCount, int[] b, int bCount) {
+        int[] result = new int[Math.min(aCount, bCount)];
+        int n = 0;
+        for (int i = 0, j = 0; i < aCount && j < bCount; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static Pattern globPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> {
+                    if ("\\.[]{}()+-^$|".indexOf(c) >= 0) regex.append('\\');
+                    regex.append(c);
+                }
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    private void watch(Path dir) {
+        if (watcher == null) return;
+        synchronized (this) {
+            if (watched.size() >= watchLimit || !watched.add(dir)) return;
+        }
+        watcher.watch(dir);
+    }
+
+    private void unwatch(Path dir) {
+        if (watcher == null) return;
+        synchronized (this) {
+            if (!watched.remove(dir)) return;
+        }
+        watcher.unwatch(dir);
+    }
+
+    private void unwatchAll() {
+        if (watcher == null) return;
+        List<Path> dirs;
+        synchronized (this) {
+            dirs = new ArrayList<>(watched);
+            watched.clear();
+        }
+        dirs.forEach(watcher::unwatch);
+    }
+
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            int[] remap = new int[count];
+            int live = 0;
+            for (int id = 0; id < count; id++) {
+                remap[id] = deleted.get(id) ? NO_PARENT : live++;
+            }
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(live);
+            for (int id = 0; id < count; id++) {
+                if (deleted.get(id)) continue;
+                out.writeInt(parents[id] == NO_PARENT ? NO_PARENT : remap[parents[id]]);
+                out.writeBoolean(directories.get(id));
+                out.writeLong(sizes[id]);
+                out.writeLong(modified[id]);
+                out.writeInt(offsets[id + 1] - offsets[id]);
+                out.write(names, offsets[id], offsets[id + 1] - offsets[id]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        List<Path> watchDirs = new ArrayList<>();
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) return;
+            int total = in.readInt();
+            clear();
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < total; i++) {
+                int parent = in.readInt();
+                boolean directory = in.readBoolean();
+                long size = in.readLong();
+                long mtime = in.readLong();
+                int length = in.readInt();
+                if (buffer.length < length) buffer = new byte[length];
+                in.readFully(buffer, 0, length);
+                int id = add(parent, new String(buffer, 0, length, StandardCharsets.UTF_8), directory, size, mtime);
+                if (directory && watchDirs.size() < watchLimit) watchDirs.add(pathOf(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        unwatchAll();
+        watchDirs.forEach(this::watch);
+    }
+
+    private class CrawlTask extends RecursiveAction {
+        private final int id;
+        private final Path dir;
+        private final ProgressListener listener;
+        private final long generation;
+
+        CrawlTask(int id, Path dir, ProgressListener listener) {
+            this.id = id;
+            this.dir = dir;
+            this.listener = listener;
+            this.generation = FileIndex.this.generation;
+        }
+
+        @Override
+        protected void compute() {
+            if (generation != FileIndex.this.generation) return;
+            watch(dir);
+            List<Child> children = new ArrayList<>();
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        children.add(new Child(file, file.getFileName().toString(), attrs.isDirectory(),
+                                attrs.size(), attrs.lastModifiedTime().toMillis()));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException ignored) {
+            }
+
+            List<CrawlTask> subtasks = new ArrayList<>();
+            lock.writeLock().lock();
+            try {
+                if (generation != FileIndex.this.generation || deleted.get(id)) return;
+                for (Child child : children) {
+                    int childId = add(id, child.name(), child.directory(), child.size(), child.modified());
+                    if (child.directory()) {
+                        subtasks.add(new CrawlTask(childId, child.path(), listener));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (Child child : children) {
+                listener.fileProcessed(child.path());
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+public record FileInfo(Path path, String name, String extension, String type, boolean directory, long size,
+                       long created, long modified, String permissions, String owner, List<String> attributes) {
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    public static String formatDate(long millis) {
+        return millis < 0 ? "недоступно" : DATE_FORMAT.format(Instant.ofEpochMilli(millis));
+    }
+
+    public FileInfo withSize(long size) {
+        return new FileInfo(path, name, extension, type, directory, size, created, modified,
+                permissions, owner, attributes);
+    }
+
+    public String format() {
+        return "1. Имя: " + name + "\n" +
+                "2. Расширение: " + (extension.isEmpty() ? "нет" : extension) + "\n" +
+                "3. Путь: " + path + "\n" +
+                "5. Тип: " + type + "\n" +
+                "6. Дата создания: " + formatDate(created) + "\n" +
+                "7. Дата изменения: " + formatDate(modified) + "\n" +
+                "8. Права: " + permissions + "\n" +
+                "9. Владелец: " + (owner != null ? owner : "недоступно") + "\n" +
+                "10. Атрибуты: " + String.join(", ", attributes) + "\n" +
+                "4. Размер: " + size + " байт (" + String.format("%.2f МБ", size / (1024.0 * 1024.0)) + ")\n";
+    }
+}
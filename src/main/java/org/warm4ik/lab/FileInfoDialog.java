@@ -0,0 +1,76 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.List;
+
+public class FileInfoDialog extends JDialog {
+    private static final String[] COLUMNS = {"Имя", "Тип", "Размер, байт", "Изменен", "Создан", "Права", "Владелец", "Атрибуты", "Путь"};
+
+    public FileInfoDialog(Frame owner, List<FileInfo> infos) {
+        super(owner, "Информация: " + infos.size() + " объектов", false);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JTable table = new JTable(new InfoTableModel(infos));
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(250);
+        table.getColumnModel().getColumn(8).setPreferredWidth(400);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        long files = infos.stream().filter(info -> !info.directory()).count();
+        long bytes = infos.stream().filter(info -> !info.directory()).mapToLong(FileInfo::size).sum();
+        JLabel summary = new JLabel(String.format("Файлов: %d, папок: %d, размер файлов: %d байт (%.2f МБ)",
+                files, infos.size() - files, bytes, bytes / (1024.0 * 1024.0)));
+        summary.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(summary, BorderLayout.SOUTH);
+
+        setSize(1400, 600);
+        setLocationRelativeTo(owner);
+    }
+
+    private static class InfoTableModel extends AbstractTableModel {
+        private final List<FileInfo> infos;
+
+        InfoTableModel(List<FileInfo> infos) {
+            this.infos = infos;
+        }
+
+        @Override
+        public int getRowCount() {
+            return infos.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FileInfo info = infos.get(row);
+            return switch (column) {
+                case 0 -> info.name();
+                case 1 -> info.type();
+                case 2 -> info.size();
+                case 3 -> FileInfo.formatDate(info.modified());
+                case 4 -> FileInfo.formatDate(info.created());
+                case 5 -> info.permissions();
+                case 6 -> info.owner() != null ? info.owner() : "недоступно";
+                case 7 -> String.join(", ", info.attributes());
+                case 8 -> info.path().toString();
+                default -> "";
+            };
+        }
+    }
+}
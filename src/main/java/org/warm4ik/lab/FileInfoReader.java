@@ -0,0 +1,150 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+public class FileInfoReader {
+    private final ExecutorService pool;
+    private final int batchSize;
+
+    public FileInfoReader() {
+        this(Integer.getInteger("explorer.infoThreads", Math.max(4, Runtime.getRuntime().availableProcessors() * 2)),
+                Integer.getInteger("explorer.infoBatch", 128));
+    }
+
+    public FileInfoReader(int threads, int batchSize) {
+        this.batchSize = batchSize;
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "info-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<FileInfo> readAll(List<Path> paths) {
+        List<Future<List<FileInfo>>> batches = new ArrayList<>();
+        for (int start = 0; start < paths.size(); start += batchSize) {
+            List<Path> batch = paths.subList(start, Math.min(paths.size(), start + batchSize));
+            batches.add(pool.submit(() -> batch.stream().map(FileInfoReader::read).toList()));
+        }
+        List<FileInfo> result = new ArrayList<>(paths.size());
+        try {
+            for (Future<List<FileInfo>> batch : batches) {
+                result.addAll(batch.get());
+            }
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return result;
+    }
+
+    public static FileInfo read(Path path) {
+        String name = path.getFileName() != null ? path.getFileName().toString() : path.toString();
+        FileSystem fs = path.getFileSystem();
+        try {
+            if (fs.supportedFileAttributeViews().contains("unix")) {
+                return fromUnix(path, name, Files.readAttributes(path, "unix:*"));
+            }
+            if (fs.supportedFileAttributeViews().contains("dos")) {
+                return fromDos(path, name, Files.readAttributes(path, "dos:*"));
+            }
+            return fromBasic(path, name, Files.readAttributes(path, "basic:*"));
+        } catch (IOException | RuntimeException e) {
+            return new FileInfo(path.toAbsolutePath(), name, "", typeOf(extensionOf(name, false), false), false,
+                    0, -1, -1, "", null, List.of());
+        }
+    }
+
+    private static FileInfo fromUnix(Path path, String name, Map<String, Object> attrs) {
+        boolean directory = (Boolean) attrs.get("isDirectory");
+        int mode = (Integer) attrs.get("mode");
+        String owner = ((UserPrincipal) attrs.get("owner")).getName();
+        boolean write = Files.isWritable(path);
+        List<String> flags = new ArrayList<>();
+        if (name.startsWith(".")) flags.add("Скрытый");
+        if (!write) flags.add("Только для чтения");
+        String permissions = permissionsText(Files.isReadable(path), write, Files.isExecutable(path))
+                + " (" + modeString(mode) + ")";
+        return build(path, name, directory, attrs, permissions, owner, flags);
+    }
+
+    private static FileInfo fromDos(Path path, String name, Map<String, Object> attrs) {
+        boolean directory = (Boolean) attrs.get("isDirectory");
+        boolean readOnly = (Boolean) attrs.get("readonly");
+        List<String> flags = new ArrayList<>();
+        if ((Boolean) attrs.get("hidden")) flags.add("Скрытый");
+        if (readOnly) flags.add("Только для чтения");
+        if ((Boolean) attrs.get("archive")) flags.add("Архивный");
+        if ((Boolean) attrs.get("system")) flags.add("Системный");
+        String owner;
+        try {
+            owner = Files.getOwner(path).getName();
+        } catch (IOException | UnsupportedOperationException e) {
+            owner = null;
+        }
+        return build(path, name, directory, attrs, permissionsText(true, !readOnly, true), owner, flags);
+    }
+
+    private static FileInfo fromBasic(Path path, String name, Map<String, Object> attrs) {
+        boolean directory = (Boolean) attrs.get("isDirectory");
+        List<String> flags = new ArrayList<>();
+        if (name.startsWith(".")) flags.add("Скрытый");
+        return build(path, name, directory, attrs,
+                permissionsText(Files.isReadable(path), Files.isWritable(path), Files.isExecutable(path)), null, flags);
+    }
+
+    private static FileInfo build(Path path, String name, boolean directory, Map<String, Object> attrs,
+                                  String permissions, String owner, List<String> flags) {
+        String extension = extensionOf(name, directory);
+        return new FileInfo(path.toAbsolutePath(), name, extension, typeOf(extension, directory), directory,
+                (Long) attrs.get("size"), millis(attrs.get("creationTime")), millis(attrs.get("lastModifiedTime")),
+                permissions, owner, flags);
+    }
+
+    private static long millis(Object time) {
+        return time instanceof FileTime fileTime ? fileTime.toMillis() : -1;
+    }
+
+    private static String permissionsText(boolean read, boolean write, boolean execute) {
+        return ((read ? "Чтение " : "") + (write ? "Запись " : "") + (execute ? "Выполнение" : "")).trim();
+    }
+
+    private static String modeString(int mode) {
+        StringBuilder text = new StringBuilder(9);
+        String letters = "rwx";
+        for (int bit = 8; bit >= 0; bit--) {
+            text.append((mode >> bit & 1) != 0 ? letters.charAt((8 - bit) % 3) : '-');
+        }
+        return text.toString();
+    }
+
+    static String extensionOf(String name, boolean directory) {
+        if (directory) return "";
+        int dotIndex = name.lastIndexOf('.');
+        return (dotIndex > 0 && dotIndex < name.length() - 1) ? name.substring(dotIndex + 1) : "";
+    }
+
+    static String typeOf(String extension, boolean directory) {
+        if (directory) return "Папка";
+        return switch (extension.toLowerCase()) {
+            case "txt" -> "Текстовый файл";
+            case "jpg", "jpeg", "png", "gif" -> "Изображение";
+            case "mp3", "wav" -> "Аудиофайл";
+            case "exe" -> "Исполняемый файл";
+            case "zip", "rar" -> "Архив";
+            default -> "Файл";
+        };
+    }
+}
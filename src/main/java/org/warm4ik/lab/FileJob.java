@@ -0,0 +1,203 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FileJob implements ProgressListener {
+    public enum State {
+        QUEUED("В очереди"), RUNNING("Выполняется"), PAUSED("Пауза"),
+        DONE("Готово"), FAILED("Ошибка"), CANCELLED("Отменено");
+
+        private final String title;
+
+        State(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    public interface Work {
+        void run(FileJob job) throws IOException;
+    }
+
+    private final String title;
+    private final Work work;
+    private final AtomicLong bytesDone = new AtomicLong();
+    private final AtomicLong filesDone = new AtomicLong();
+    private volatile State state = State.QUEUED;
+    private volatile long totalBytes = -1;
+    private volatile long totalFiles = -1;
+    private volatile boolean cancelled = false;
+    private volatile String error = null;
+    private volatile BandwidthThrottle throttle = null;
+    private long startNanos = 0;
+    private long pausedNanos = 0;
+    private long pauseStartNanos = 0;
+    private long finishNanos = 0;
+
+    FileJob(String title, Work work) {
+        this.title = title;
+        this.work = work;
+    }
+
+    void execute() {
+        synchronized (this) {
+            if (cancelled) return;
+            state = State.RUNNING;
+            startNanos = System.nanoTime();
+        }
+        try {
+            checkpoint();
+            work.run(this);
+            finish(State.DONE);
+        } catch (CancellationException e) {
+            finish(State.CANCELLED);
+        } catch (IOException | RuntimeException e) {
+            if (cancelled || e.getCause() instanceof CancellationException) {
+                finish(State.CANCELLED);
+            } else {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+                finish(State.FAILED);
+            }
+        }
+    }
+
+    private synchronized void finish(State finalState) {
+        state = finalState;
+        finishNanos = System.nanoTime();
+        notifyAll();
+    }
+
+    public void setTotals(long bytes, long files) {
+        totalBytes = bytes;
+        totalFiles = files;
+    }
+
+    public void setThrottle(BandwidthThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    @Override
+    public void bytesProcessed(long bytes) {
+        bytesDone.addAndGet(bytes);
+        BandwidthThrottle current = throttle;
+        if (current != null) current.acquire(bytes, () -> cancelled);
+        checkpoint();
+    }
+
+    @Override
+    public void fileProcessed(Path path) {
+        filesDone.incrementAndGet();
+        checkpoint();
+    }
+
+    public void checkpoint() {
+        if (state == State.PAUSED) {
+            synchronized (this) {
+                while (state == State.PAUSED && !cancelled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException();
+                    }
+                }
+            }
+        }
+        if (cancelled) throw new CancellationException();
+    }
+
+    public synchronized void pause() {
+        if (state == State.RUNNING) {
+            state = State.PAUSED;
+            pauseStartNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized void resume() {
+        if (state == State.PAUSED) {
+            pausedNanos += System.nanoTime() - pauseStartNanos;
+            state = State.RUNNING;
+            notifyAll();
+        }
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        if (state == State.QUEUED) {
+            state = State.CANCELLED;
+        } else if (state == State.PAUSED) {
+            pausedNanos += System.nanoTime() - pauseStartNanos;
+            state = State.RUNNING;
+        }
+        notifyAll();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        State current = state;
+        return current == State.DONE || current == State.FAILED || current == State.CANCELLED;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getBytesDone() {
+        return bytesDone.get();
+    }
+
+    public long getFilesDone() {
+        return filesDone.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    private synchronized double activeSeconds() {
+        if (startNanos == 0) return 0;
+        long end = isFinished() ? finishNanos : System.nanoTime();
+        long paused = pausedNanos + (state == State.PAUSED ? end - pauseStartNanos : 0);
+        return (end - startNanos - paused) / 1e9;
+    }
+
+    public double getBytesPerSecond() {
+        double seconds = activeSeconds();
+        return seconds > 0 ? bytesDone.get() / seconds : 0;
+    }
+
+    public long getEtaSeconds() {
+        double seconds = activeSeconds();
+        if (isFinished() || seconds <= 0) return -1;
+        long total = totalBytes;
+        long done = bytesDone.get();
+        if (total <= 0 || done == 0) {
+            total = totalFiles;
+            done = filesDone.get();
+        }
+        if (total <= 0 || done == 0) return -1;
+        return (long) Math.ceil(Math.max(0, total - done) * seconds / done);
+    }
+}
@@ -0,0 +1,342 @@
+package org.warm4ik.lab;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+public class FileTreeModel implements TreeModel {
+    private static final long PINNED_NODE_BYTES = 96;
+
+    private final FileTreeNode root;
+    private final EventListenerList listeners = new EventListenerList();
+
+    public FileTreeModel(String rootName, File[] drives) {
+        root = new FileTreeNode(null, rootName, ChildList.DIRECTORY, 0);
+        root.children = new ChildList();
+        for (File drive : drives) {
+            root.children.add(drive.getPath(), ChildList.DIRECTORY);
+        }
+    }
+
+    @Override
+    public FileTreeNode getRoot() {
+        return root;
+    }
+
+    @Override
+    public FileTreeNode getChild(Object parent, int index) {
+        FileTreeNode node = canonical((FileTreeNode) parent);
+        String name = node.children.nameAt(index);
+        FileTreeNode pinned = node.pinnedChild(name);
+        if (pinned != null) {
+            pinned.indexHint = index;
+            return pinned;
+        }
+        return new FileTreeNode(node, name, node.children.flagsAt(index), index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        FileTreeNode node = canonical((FileTreeNode) parent);
+        return node.children != null ? node.children.size() : 0;
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return !((FileTreeNode) node).isExpandable();
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) return -1;
+        FileTreeNode node = canonical((FileTreeNode) parent);
+        FileTreeNode childNode = (FileTreeNode) child;
+        if (node.children == null || childNode.getParent() != node) return -1;
+        int index = node.children.indexOf(childNode.getName(), childNode.indexHint);
+        if (index >= 0) childNode.indexHint = index;
+        return index;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+    }
+
+    public FileTreeNode canonical(FileTreeNode node) {
+        if (node.isRoot()) return node;
+        FileTreeNode pinned = node.getParent().pinnedChild(node.getName());
+        return pinned != null ? pinned : node;
+    }
+
+    public boolean isLoaded(FileTreeNode node) {
+        return canonical(node).isLoaded();
+    }
+
+    public long estimatedBytes() {
+        return estimatedBytes(root);
+    }
+
+    public long estimatedBytes(FileTreeNode node) {
+        node = canonical(node);
+        if (node.children == null) return 0;
+        long bytes = PINNED_NODE_BYTES + node.children.estimatedBytes();
+        if (node.pinned != null) {
+            for (FileTreeNode child : node.pinned.values()) {
+                bytes += estimatedBytes(child);
+            }
+        }
+        return bytes;
+    }
+
+    public FileTreeNode beginLoad(FileTreeNode node) {
+        node = canonical(node);
+        if (!node.isRoot()) node.getParent().pin(node);
+        boolean reload = node.children != null && node.children.size() > 0;
+        node.children = new ChildList();
+        node.pinned = null;
+        if (reload) fireStructureChanged(node);
+        return node;
+    }
+
+    public void appendChildren(FileTreeNode node, List<FileEntry> entries) {
+        node = canonical(node);
+        if (node.children == null) return;
+        int start = node.children.size();
+        for (FileEntry entry : entries) {
+            node.children.add(entry.name(), flagsOf(entry));
+        }
+        int count = node.children.size() - start;
+        if (count == 0) return;
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = start + i;
+        }
+        fireNodesInserted(node, indices, null);
+    }
+
+    public void finishLoad(FileTreeNode node) {
+        node = canonical(node);
+        if (node.children != null) node.children.trim();
+    }
+
+    public void unload(FileTreeNode node) {
+        node = canonical(node);
+        if (node.children == null) return;
+        node.children = null;
+        node.pinned = null;
+        if (!node.isRoot()) node.getParent().unpin(node.getName());
+        fireStructureChanged(node);
+    }
+
+    public FileTreeNode insertChild(FileTreeNode parent, FileEntry entry) {
+        parent = canonical(parent);
+        if (parent.children == null) return null;
+        int existing = parent.children.indexOf(entry.name(), -1);
+        if (existing >= 0) return getChild(parent, existing);
+        parent.children.add(entry.name(), flagsOf(entry));
+        int index = parent.children.size() - 1;
+        FileTreeNode child = getChild(parent, index);
+        fireNodesInserted(parent, new int[]{index}, new Object[]{child});
+        return child;
+    }
+
+    public void removeChild(FileTreeNode child) {
+        FileTreeNode parent = child.getParent();
+        int index = getIndexOfChild(parent, child);
+        if (index < 0) return;
+        FileTreeNode removed = getChild(parent, index);
+        parent.children.remove(index);
+        parent.unpin(child.getName());
+        fireNodesRemoved(parent, new int[]{index}, new Object[]{removed});
+    }
+
+    public FileTreeNode renameChild(FileTreeNode child, FileEntry entry) {
+        FileTreeNode parent = child.getParent();
+        int index = getIndexOfChild(parent, child);
+        if (index < 0) return null;
+        if (parent.pinnedChild(child.getName()) != null) {
+            removeChild(child);
+            parent.children.add(entry.name(), flagsOf(entry));
+            int last = parent.children.size() - 1;
+            FileTreeNode renamed = getChild(parent, last);
+            fireNodesInserted(parent, new int[]{last}, new Object[]{renamed});
+            return renamed;
+        }
+        parent.children.set(index, entry.name(), flagsOf(entry));
+        FileTreeNode renamed = getChild(parent, index);
+        fireNodesChanged(parent, new int[]{index}, new Object[]{renamed});
+        return renamed;
+    }
+
+    public FileTreeNode childNamed(FileTreeNode parent, String name) {
+        parent = canonical(parent);
+        if (parent.children == null) return null;
+        int index = parent.children.indexOf(name, -1);
+        return index >= 0 ? getChild(parent, index) : null;
+    }
+
+    public FileTreeNode findLoaded(Path path) {
+        path = path.toAbsolutePath().normalize();
+        FileTreeNode node = driveNode(path);
+        for (int i = 0; node != null && i < path.getNameCount(); i++) {
+            node = node.pinnedChild(path.getName(i).toString());
+        }
+        return node;
+    }
+
+    public FileTreeNode findNode(Path path) {
+        path = path.toAbsolutePath().normalize();
+        if (path.getNameCount() == 0) return driveNode(path);
+        FileTreeNode parent = findLoaded(path.getParent());
+        return parent != null ? childNamed(parent, path.getFileName().toString()) : null;
+    }
+
+    private FileTreeNode driveNode(Path path) {
+        Path drive = path.getRoot();
+        if (drive == null) return null;
+        FileTreeNode node = root.pinnedChild(drive.toString());
+        if (node != null) return node;
+        int index = root.children.indexOf(drive.toString(), -1);
+        return index >= 0 ? getChild(root, index) : null;
+    }
+
+    public void applyChanges(FileTreeNode parent, Map<String, FileEntry> present, Set<String> removed) {
+        parent = canonical(parent);
+        if (parent.children == null) return;
+        ChildList children = parent.children;
+        int[] removedIndices = new int[removed.size()];
+        int removedCount = 0;
+        for (String name : removed) {
+            int index = children.indexOf(name, -1);
+            if (index >= 0) removedIndices[removedCount++] = index;
+        }
+        if (removedCount > 0) {
+            removedIndices = Arrays.copyOf(removedIndices, removedCount);
+            Arrays.sort(removedIndices);
+            Object[] removedNodes = new Object[removedCount];
+            for (int i = 0; i < removedCount; i++) {
+                removedNodes[i] = getChild(parent, removedIndices[i]);
+            }
+            for (int i = removedCount - 1; i >= 0; i--) {
+                FileTreeNode node = (FileTreeNode) removedNodes[i];
+                children.remove(removedIndices[i]);
+                parent.unpin(node.getName());
+            }
+            fireNodesRemoved(parent, removedIndices, removedNodes);
+        }
+
+        List<Integer> changed = new ArrayList<>();
+        int start = children.size();
+        for (FileEntry entry : present.values()) {
+            int flags = flagsOf(entry);
+            int index = children.indexOf(entry.name(), -1);
+            if (index < 0) {
+                children.add(entry.name(), flags);
+            } else if (children.flagsAt(index) != flags && parent.pinnedChild(entry.name()) == null) {
+                children.set(index, entry.name(), flags);
+                changed.add(index);
+            }
+        }
+        int inserted = children.size() - start;
+        if (inserted > 0) {
+            int[] indices = new int[inserted];
+            for (int i = 0; i < inserted; i++) {
+                indices[i] = start + i;
+            }
+            fireNodesInserted(parent, indices, null);
+        }
+        if (!changed.isEmpty()) {
+            int[] indices = changed.stream().mapToInt(Integer::intValue).sorted().toArray();
+            Object[] nodes = new Object[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                nodes[i] = getChild(parent, indices[i]);
+            }
+            fireNodesChanged(parent, indices, nodes);
+        }
+    }
+
+    public void syncChildren(FileTreeNode parent, List<FileEntry> listing) {
+        parent = canonical(parent);
+        if (parent.children == null) return;
+        Map<String, FileEntry> present = new HashMap<>(listing.size() * 2);
+        for (FileEntry entry : listing) {
+            present.put(entry.name(), entry);
+        }
+        Set<String> removed = new HashSet<>();
+        ChildList children = parent.children;
+        for (int i = 0; i < children.size(); i++) {
+            String name = children.nameAt(i);
+            FileEntry entry = present.get(name);
+            if (entry == null) {
+                removed.add(name);
+            } else if (children.flagsAt(i) == flagsOf(entry)) {
+                present.remove(name);
+            }
+        }
+        applyChanges(parent, present, removed);
+    }
+
+    public void nodeChanged(FileTreeNode node) {
+        if (node.isRoot()) return;
+        FileTreeNode parent = node.getParent();
+        int index = getIndexOfChild(parent, node);
+        if (index >= 0) {
+            fireNodesChanged(parent, new int[]{index}, new Object[]{node});
+        }
+    }
+
+    public TreePath pathTo(FileTreeNode node) {
+        List<FileTreeNode> nodes = new ArrayList<>();
+        for (FileTreeNode n = canonical(node); n != null; n = n.getParent()) {
+            nodes.add(0, n);
+        }
+        return new TreePath(nodes.toArray());
+    }
+
+    private static int flagsOf(FileEntry entry) {
+        return (entry.directory() ? ChildList.DIRECTORY : 0) | (entry.hidden() ? ChildList.HIDDEN : 0)
+                | (ArchiveFileSystems.isArchive(entry) ? ChildList.ARCHIVE : 0);
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+        listeners.add(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+        listeners.remove(TreeModelListener.class, l);
+    }
+
+    private void fireNodesInserted(FileTreeNode parent, int[] indices, Object[] children) {
+        TreeModelEvent event = new TreeModelEvent(this, pathTo(parent), indices, children);
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeNodesInserted(event);
+        }
+    }
+
+    private void fireNodesRemoved(FileTreeNode parent, int[] indices, Object[] children) {
+        TreeModelEvent event = new TreeModelEvent(this, pathTo(parent), indices, children);
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeNodesRemoved(event);
+        }
+    }
+
+    private void fireNodesChanged(FileTreeNode parent, int[] indices, Object[] children) {
+        TreeModelEvent event = new TreeModelEvent(this, pathTo(parent), indices, children);
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeNodesChanged(event);
+        }
+    }
+
+    private void fireStructureChanged(FileTreeNode node) {
+        TreeModelEvent event = new TreeModelEvent(this, pathTo(node));
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeStructureChanged(event);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.warm4ik.lab;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FileTreeNode {
+    private final FileTreeNode parent;
+    private final String name;
+    private final int flags;
+    int indexHint;
+    ChildList children = null;
+    Map<String, FileTreeNode> pinned = null;
+
+    FileTreeNode(FileTreeNode parent, String name, int flags, int indexHint) {
+        this.parent = parent;
+        this.name = name;
+        this.flags = flags;
+        this.indexHint = indexHint;
+    }
+
+    public FileTreeNode getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    public boolean isDrive() {
+        return parent != null && parent.parent == null;
+    }
+
+    public boolean isDirectory() {
+        return (flags & ChildList.DIRECTORY) != 0;
+    }
+
+    public boolean isHidden() {
+        return (flags & ChildList.HIDDEN) != 0;
+    }
+
+    public boolean isArchive() {
+        return (flags & ChildList.ARCHIVE) != 0;
+    }
+
+    public boolean isExpandable() {
+        return (flags & (ChildList.DIRECTORY | ChildList.ARCHIVE)) != 0;
+    }
+
+    public FileTreeNode enclosingArchive() {
+        for (FileTreeNode node = this; node != null; node = node.parent) {
+            if (node.isArchive()) return node;
+        }
+        return null;
+    }
+
+    public boolean isInArchive() {
+        return parent != null && parent.enclosingArchive() != null;
+    }
+
+    public boolean isLoaded() {
+        return children != null;
+    }
+
+    int flags() {
+        return flags;
+    }
+
+    public boolean isDescendantOf(FileTreeNode ancestor) {
+        for (FileTreeNode node = this; node != null; node = node.parent) {
+            if (node.equals(ancestor)) return true;
+        }
+        return false;
+    }
+
+    public Path toPath() {
+        if (parent == null) return null;
+        if (parent.parent == null) return Paths.get(name);
+        return parent.toPath().resolve(name);
+    }
+
+    public File toFile() {
+        Path path = toPath();
+        return path != null ? path.toFile() : null;
+    }
+
+    FileTreeNode pinnedChild(String childName) {
+        return pinned != null ? pinned.get(childName) : null;
+    }
+
+    void pin(FileTreeNode child) {
+        if (pinned == null) pinned = new ConcurrentHashMap<>();
+        pinned.put(child.name, child);
+    }
+
+    void unpin(String childName) {
+        if (pinned != null) pinned.remove(childName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof FileTreeNode other && parent == other.parent && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(parent) * 31 + name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,86 @@
+package org.warm4ik.lab;
+
+import java.util.Arrays;
+
+public final class IndexSort {
+    private static final int INSERTION_THRESHOLD = 32;
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX - 1;
+
+    public interface Comparator {
+        int compare(int a, int b);
+    }
+
+    private IndexSort() {
+    }
+
+    public static void sort(int[] index, int count, Comparator comparator) {
+        int[] buffer = Arrays.copyOf(index, count);
+        mergeSort(buffer, index, 0, count, comparator);
+    }
+
+    public static void sortByKey(int[] index, long[] keys) {
+        int count = index.length;
+        long[] digits = new long[count];
+        for (int i = 0; i < count; i++) {
+            digits[i] = keys[index[i]] ^ Long.MIN_VALUE;
+        }
+        long[] digitBuffer = new long[count];
+        int[] indexBuffer = new int[count];
+        int[] source = index;
+        int[] target = indexBuffer;
+        int[] counts = new int[RADIX + 1];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < count; i++) {
+                counts[(int) (digits[i] >>> shift & RADIX_MASK) + 1]++;
+            }
+            if (count == 0 || counts[(int) (digits[0] >>> shift & RADIX_MASK) + 1] == count) continue;
+            for (int i = 0; i < RADIX; i++) {
+                counts[i + 1] += counts[i];
+            }
+            for (int i = 0; i < count; i++) {
+                int position = counts[(int) (digits[i] >>> shift & RADIX_MASK)]++;
+                digitBuffer[position] = digits[i];
+                target[position] = source[i];
+            }
+            long[] swapDigits = digits;
+            digits = digitBuffer;
+            digitBuffer = swapDigits;
+            int[] swapIndex = source;
+            source = target;
+            target = swapIndex;
+        }
+        if (source != index) System.arraycopy(source, 0, index, 0, count);
+    }
+
+    private static void mergeSort(int[] source, int[] target, int low, int high, Comparator comparator) {
+        int length = high - low;
+        if (length < INSERTION_THRESHOLD) {
+            for (int i = low + 1; i < high; i++) {
+                int value = target[i];
+                int j = i;
+                for (; j > low && comparator.compare(target[j - 1], value) > 0; j--) {
+                    target[j] = target[j - 1];
+                }
+                target[j] = value;
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        mergeSort(target, source, low, mid, comparator);
+        mergeSort(target, source, mid, high, comparator);
+        if (comparator.compare(source[mid - 1], source[mid]) <= 0) {
+            System.arraycopy(source, low, target, low, length);
+            return;
+        }
+        for (int i = low, left = low, right = mid; i < high; i++) {
+            if (right >= high || left < mid && comparator.compare(source[left], source[right]) <= 0) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+public class IoScheduler {
+    private final ExecutorService executor = createExecutor();
+    private final Map<Object, RunnableFuture<?>> tasks = new ConcurrentHashMap<>();
+    private final Map<Object, Semaphore> mountPermits = new ConcurrentHashMap<>();
+    private final int permitsPerMount;
+
+    public IoScheduler(int permitsPerMount) {
+        this.permitsPerMount = permitsPerMount;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "io-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public RunnableFuture<?> submit(Object key, Path path, RunnableFuture<?> task) {
+        RunnableFuture<?> existing = tasks.putIfAbsent(key, task);
+        if (existing != null) return existing;
+        executor.execute(() -> run(key, path, task));
+        return task;
+    }
+
+    public void replace(Object key, Path path, RunnableFuture<?> task) {
+        RunnableFuture<?> previous = tasks.put(key, task);
+        if (previous != null) previous.cancel(true);
+        executor.execute(() -> run(key, path, task));
+    }
+
+    public void cancel(Object key) {
+        RunnableFuture<?> task = tasks.remove(key);
+        if (task != null) task.cancel(true);
+    }
+
+    public void cancelIf(Predicate<Object> keyFilter) {
+        List<RunnableFuture<?>> cancelled = new ArrayList<>();
+        for (Object key : tasks.keySet()) {
+            if (!keyFilter.test(key)) continue;
+            RunnableFuture<?> task = tasks.remove(key);
+            if (task != null) cancelled.add(task);
+        }
+        cancelled.forEach(task -> task.cancel(true));
+    }
+
+    public boolean isActive(Object key) {
+        return tasks.containsKey(key);
+    }
+
+    private void run(Object key, Path path, RunnableFuture<?> task) {
+        try {
+            if (task.isCancelled()) return;
+            Semaphore permits = mountPermits.computeIfAbsent(mountOf(path), k -> new Semaphore(permitsPerMount));
+            permits.acquire();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            task.cancel(false);
+        } finally {
+            tasks.remove(key, task);
+        }
+    }
+
+    private static Object mountOf(Path path) {
+        try {
+            return Files.getFileStore(path);
+        } catch (IOException | RuntimeException e) {
+            Path root = path.getRoot();
+            return root != null ? root : path.getFileSystem();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class JobManager {
+    private final ExecutorService executor;
+    private final List<FileJob> jobs = new CopyOnWriteArrayList<>();
+    private final Map<Object, BandwidthThrottle> throttles = new ConcurrentHashMap<>();
+    private volatile long bytesPerSecond;
+
+    public JobManager(int maxConcurrentJobs, long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.executor = Executors.newFixedThreadPool(maxConcurrentJobs, r -> {
+            Thread thread = new Thread(r, "file-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public FileJob submit(String title, Path device, FileJob.Work work, Consumer<FileJob> onFinished) {
+        FileJob job = new FileJob(title, work);
+        if (device != null) {
+            job.setThrottle(throttleFor(device));
+        }
+        jobs.add(job);
+        executor.execute(() -> {
+            job.execute();
+            if (onFinished != null) {
+                SwingUtilities.invokeLater(() -> onFinished.accept(job));
+            }
+        });
+        return job;
+    }
+
+    public BandwidthThrottle throttleFor(Path path) {
+        Object device;
+        try {
+            device = Files.getFileStore(path);
+        } catch (IOException | RuntimeException e) {
+            Path root = path.getRoot();
+            device = root != null ? root : path.getFileSystem();
+        }
+        return throttles.computeIfAbsent(device, key -> new BandwidthThrottle(bytesPerSecond));
+    }
+
+    public void setBandwidthLimit(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        throttles.values().forEach(throttle -> throttle.setBytesPerSecond(bytesPerSecond));
+    }
+
+    public long getBandwidthLimit() {
+        return bytesPerSecond;
+    }
+
+    public List<FileJob> getJobs() {
+        return jobs;
+    }
+
+    public void clearFinished() {
+        jobs.removeIf(FileJob::isFinished);
+    }
+}
@@ -0,0 +1,128 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class JobsPanel extends JPanel {
+    private static final int REFRESH_MS = 500;
+    private static final String[] COLUMNS = {"Операция", "Состояние", "Прогресс", "Скорость", "Осталось"};
+
+    private final JobManager jobManager;
+    private final JobsTableModel tableModel = new JobsTableModel();
+    private final JTable table = new JTable(tableModel);
+
+    public JobsPanel(JobManager jobManager) {
+        super(new BorderLayout());
+        this.jobManager = jobManager;
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setPreferredWidth(400);
+        table.getColumnModel().getColumn(2).setPreferredWidth(300);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(0, 120));
+        add(scrollPane, BorderLayout.CENTER);
+
+        JButton pauseButton = new JButton("Пауза");
+        pauseButton.addActionListener(e -> withSelected(FileJob::pause));
+        JButton resumeButton = new JButton("Продолжить");
+        resumeButton.addActionListener(e -> withSelected(FileJob::resume));
+        JButton cancelButton = new JButton("Отмена");
+        cancelButton.addActionListener(e -> withSelected(FileJob::cancel));
+        JButton clearButton = new JButton("Очистить завершенные");
+        clearButton.addActionListener(e -> {
+            jobManager.clearFinished();
+            tableModel.fireTableDataChanged();
+        });
+        JSpinner limitSpinner = new JSpinner(new SpinnerNumberModel(
+                (int) (jobManager.getBandwidthLimit() / (1024 * 1024)), 0, 100_000, 10));
+        limitSpinner.addChangeListener(e -> jobManager.setBandwidthLimit(
+                ((Number) limitSpinner.getValue()).longValue() * 1024 * 1024));
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(pauseButton);
+        buttons.add(resumeButton);
+        buttons.add(cancelButton);
+        buttons.add(clearButton);
+        buttons.add(new JLabel("Лимит на устройство, МБ/с (0 — без лимита):"));
+        buttons.add(limitSpinner);
+        add(buttons, BorderLayout.NORTH);
+
+        new Timer(REFRESH_MS, e -> tableModel.refresh()).start();
+    }
+
+    private void withSelected(Consumer<FileJob> action) {
+        int row = table.getSelectedRow();
+        List<FileJob> jobs = jobManager.getJobs();
+        if (row >= 0 && row < jobs.size()) {
+            action.accept(jobs.get(row));
+            tableModel.refresh();
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        return String.format("%.1f МБ", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String formatEta(long seconds) {
+        if (seconds < 0) return "";
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    private class JobsTableModel extends AbstractTableModel {
+        private int rowCount = 0;
+
+        void refresh() {
+            int count = jobManager.getJobs().size();
+            if (count != rowCount) {
+                rowCount = count;
+                fireTableDataChanged();
+            } else if (count > 0) {
+                fireTableRowsUpdated(0, count - 1);
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return Math.min(rowCount, jobManager.getJobs().size());
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FileJob job = jobManager.getJobs().get(row);
+            return switch (column) {
+                case 0 -> job.getTitle();
+                case 1 -> job.getState() == FileJob.State.FAILED
+                        ? job.getState() + ": " + job.getError() : job.getState().toString();
+                case 2 -> progressText(job);
+                case 3 -> formatBytes((long) job.getBytesPerSecond()) + "/с";
+                case 4 -> formatEta(job.getEtaSeconds());
+                default -> "";
+            };
+        }
+
+        private String progressText(FileJob job) {
+            long totalBytes = job.getTotalBytes();
+            long totalFiles = job.getTotalFiles();
+            String files = totalFiles >= 0
+                    ? job.getFilesDone() + " из " + totalFiles + " файлов"
+                    : job.getFilesDone() + " файлов";
+            if (totalBytes > 0) {
+                int percent = (int) Math.min(100, job.getBytesDone() * 100 / totalBytes);
+                return percent + "% (" + formatBytes(job.getBytesDone()) + " из " + formatBytes(totalBytes) + ", " + files + ")";
+            }
+            return files;
+        }
+    }
+}
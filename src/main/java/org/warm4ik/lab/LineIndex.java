@@ -0,0 +1,233 @@
+package org.warm4ik.lab;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+public class LineIndex implements Closeable {
+    public static final int STRIDE = 1024;
+    private static final long SCAN_REGION = 256L * 1024 * 1024;
+    private static final long VIEW_WINDOW = 16L * 1024 * 1024;
+    private static final int MAX_LINE_BYTES = 4096;
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final Path path;
+    private final FileChannel channel;
+    private long[] checkpoints = new long[256];
+    private int checkpointCount = 1;
+    private long newlines = 0;
+    private long lastLineStart = 0;
+    private long indexedBytes = 0;
+    private final Object viewLock = new Object();
+    private volatile boolean viewStale = false;
+    private MappedByteBuffer view;
+    private long viewStart = -1;
+
+    public LineIndex(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public synchronized long indexedBytes() {
+        return indexedBytes;
+    }
+
+    public synchronized long lineCount() {
+        return newlines + (indexedBytes > lastLineStart ? 1 : 0);
+    }
+
+    public synchronized int checkpointCount() {
+        return checkpointCount;
+    }
+
+    public boolean isComplete() throws IOException {
+        return indexedBytes() >= size();
+    }
+
+    public boolean isBinary() throws IOException {
+        long probe = Math.min(size(), 8192);
+        if (probe == 0) return false;
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, probe);
+        for (int i = 0; i < probe; i++) {
+            if (head.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    public void index(BooleanSupplier cancelled) throws IOException {
+        long size = channel.size();
+        long position;
+        synchronized (this) {
+            if (size < indexedBytes) reset();
+            position = indexedBytes;
+        }
+        while (position < size && !cancelled.getAsBoolean()) {
+            long length = Math.min(SCAN_REGION, size - position);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                scan(region, position, (int) length, cancelled);
+            } catch (InternalError e) {
+                reset();
+                return;
+            }
+            position += length;
+        }
+    }
+
+    private void scan(MappedByteBuffer region, long base, int length, BooleanSupplier cancelled) {
+        int i = 0;
+        int publishEvery = 1 << 22;
+        int nextPublish = publishEvery;
+        long found = 0;
+        long lastStart = -1;
+        long[] pending = new long[64];
+        int pendingCount = 0;
+        long lineNumber;
+        synchronized (this) {
+            lineNumber = newlines;
+        }
+        while (i < length) {
+            if (i + 8 <= length) {
+                long word = region.getLong(i) ^ NEWLINES;
+                if (((word - LOW_BITS) & ~word & HIGH_BITS) == 0) {
+                    i += 8;
+                    if (i >= nextPublish) {
+                        publish(base + i, found, lastStart, pending, pendingCount);
+                        found = 0;
+                        pendingCount = 0;
+                        nextPublish += publishEvery;
+                        if (cancelled.getAsBoolean()) return;
+                    }
+                    continue;
+                }
+            }
+            int end = Math.min(i + 8, length);
+            for (; i < end; i++) {
+                if (region.get(i) != '\n') continue;
+                found++;
+                lineNumber++;
+                lastStart = base + i + 1;
+                if (lineNumber % STRIDE == 0) {
+                    if (pendingCount == pending.length) pending = Arrays.copyOf(pending, pendingCount * 2);
+                    pending[pendingCount++] = lastStart;
+                }
+            }
+        }
+        publish(base + length, found, lastStart, pending, pendingCount);
+    }
+
+    private synchronized void publish(long indexed, long found, long lastStart, long[] pending, int pendingCount) {
+        if (checkpointCount + pendingCount > checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, Math.max(checkpoints.length * 2, checkpointCount + pendingCount));
+        }
+        System.arraycopy(pending, 0, checkpoints, checkpointCount, pendingCount);
+        checkpointCount += pendingCount;
+        newlines += found;
+        if (lastStart >= 0) lastLineStart = lastStart;
+        indexedBytes = indexed;
+    }
+
+    private synchronized void reset() {
+        checkpoints = new long[256];
+        checkpointCount = 1;
+        newlines = 0;
+        lastLineStart = 0;
+        indexedBytes = 0;
+        viewStale = true;
+    }
+
+    public List<String> readLines(long firstLine, int count) throws IOException {
+        synchronized (viewLock) {
+            if (viewStale) {
+                view = null;
+                viewStale = false;
+            }
+            try {
+                return read(firstLine, count);
+            } catch (InternalError | IndexOutOfBoundsException e) {
+                view = null;
+                return List.of();
+            }
+        }
+    }
+
+    private List<String> read(long firstLine, int count) throws IOException {
+        long offset;
+        long skip;
+        long limit;
+        synchronized (this) {
+            if (firstLine >= lineCount()) return List.of();
+            int checkpoint = (int) Math.min(firstLine / STRIDE, checkpointCount - 1);
+            offset = checkpoints[checkpoint];
+            skip = firstLine - (long) checkpoint * STRIDE;
+            limit = indexedBytes;
+        }
+        for (; skip > 0 && offset < limit; skip--) {
+            offset = nextLine(offset, limit);
+        }
+        List<String> lines = new ArrayList<>(count);
+        while (lines.size() < count && offset < limit) {
+            long end = lineEnd(offset, limit);
+            int length = (int) Math.min(end - offset, MAX_LINE_BYTES);
+            byte[] bytes = new byte[length];
+            MappedByteBuffer window = window(offset, length);
+            window.get((int) (offset - viewStart), bytes);
+            if (length > 0 && bytes[length - 1] == '\r') length--;
+            lines.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            offset = end + 1;
+        }
+        return lines;
+    }
+
+    private long nextLine(long offset, long limit) throws IOException {
+        return Math.min(lineEnd(offset, limit) + 1, limit);
+    }
+
+    private long lineEnd(long offset, long limit) throws IOException {
+        while (offset < limit) {
+            MappedByteBuffer window = window(offset, 1);
+            int from = (int) (offset - viewStart);
+            int to = (int) Math.min(window.limit(), limit - viewStart);
+            for (int i = from; i < to; i++) {
+                if (window.get(i) == '\n') return viewStart + i;
+            }
+            offset = viewStart + to;
+        }
+        return limit;
+    }
+
+    private MappedByteBuffer window(long offset, int length) throws IOException {
+        if (view == null || offset < viewStart || offset + length > viewStart + view.limit()) {
+            long size = channel.size();
+            long start = Math.max(0, Math.min(offset, size - length));
+            view = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(VIEW_WINDOW, size - start));
+            viewStart = start;
+        }
+        return view;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
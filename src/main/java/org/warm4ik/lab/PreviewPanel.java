@@ -0,0 +1,273 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PreviewPanel extends JPanel {
+    private static final int REFRESH_MS = 500;
+    private static final int WHEEL_LINES = 3;
+
+    private final JLabel titleLabel = new JLabel(" ");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JTextField lineField = new JTextField(10);
+    private final JCheckBox followBox = new JCheckBox("Следить");
+    private final JScrollBar scrollBar = new JScrollBar(JScrollBar.VERTICAL);
+    private final LineView view = new LineView();
+    private final Timer refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "preview-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "preview-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile LineIndex index;
+    private final AtomicReference<LineIndex> indexing = new AtomicReference<>();
+    private boolean adjusting;
+
+    public PreviewPanel() {
+        super(new BorderLayout());
+        JButton goButton = new JButton("Перейти");
+        goButton.addActionListener(e -> goToLine());
+        lineField.addActionListener(e -> goToLine());
+        followBox.addActionListener(e -> {
+            if (followBox.isSelected() && index != null) {
+                startIndexing();
+                scrollToEnd();
+                refreshTimer.start();
+            }
+        });
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        controls.add(new JLabel("Строка:"));
+        controls.add(lineField);
+        controls.add(goButton);
+        controls.add(followBox);
+        JPanel top = new JPanel(new BorderLayout(4, 0));
+        top.add(titleLabel, BorderLayout.CENTER);
+        top.add(controls, BorderLayout.EAST);
+        add(top, BorderLayout.NORTH);
+
+        JPanel center = new JPanel(new BorderLayout());
+        center.add(view, BorderLayout.CENTER);
+        center.add(scrollBar, BorderLayout.EAST);
+        add(center, BorderLayout.CENTER);
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(statusLabel, BorderLayout.SOUTH);
+
+        scrollBar.addAdjustmentListener(e -> {
+            if (!adjusting) requestLines();
+        });
+        view.addMouseWheelListener(e -> scrollBar.setValue(scrollBar.getValue() + e.getWheelRotation() * WHEEL_LINES));
+        view.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateScrollBar();
+                requestLines();
+            }
+        });
+        refreshTimer.setInitialDelay(50);
+    }
+
+    public void show(Path file) {
+        LineIndex previous = index;
+        if (previous != null && previous.getPath().equals(file)) return;
+        close();
+        long current = generation.get();
+        titleLabel.setText(file.toString());
+        statusLabel.setText("Открытие...");
+        reader.execute(() -> {
+            try {
+                LineIndex opened = new LineIndex(file);
+                boolean binary = opened.isBinary();
+                SwingUtilities.invokeLater(() -> {
+                    if (generation.get() != current) {
+                        closeQuietly(opened);
+                        return;
+                    }
+                    index = opened;
+                    if (binary) statusLabel.setText("Двоичный файл");
+                    startIndexing();
+                    refreshTimer.start();
+                });
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (generation.get() == current) statusLabel.setText("Ошибка открытия: " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    public void close() {
+        generation.incrementAndGet();
+        refreshTimer.stop();
+        LineIndex previous = index;
+        index = null;
+        view.setLines(0, List.of());
+        adjusting = true;
+        scrollBar.setValues(0, 1, 0, 1);
+        adjusting = false;
+        titleLabel.setText(" ");
+        statusLabel.setText(" ");
+        if (previous != null) indexer.execute(() -> closeQuietly(previous));
+    }
+
+    private void startIndexing() {
+        LineIndex current = index;
+        if (current == null || indexing.getAndSet(current) == current) return;
+        long started = generation.get();
+        indexer.execute(() -> {
+            try {
+                current.index(() -> generation.get() != started);
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> statusLabel.setText("Ошибка чтения: " + e.getMessage()));
+            } finally {
+                indexing.compareAndSet(current, null);
+            }
+        });
+    }
+
+    private void refresh() {
+        LineIndex current = index;
+        if (current == null) return;
+        try {
+            boolean complete = current.isComplete();
+            if (!complete) startIndexing();
+            long before = scrollBar.getMaximum();
+            updateScrollBar();
+            if (followBox.isSelected()) {
+                scrollToEnd();
+            } else if (scrollBar.getMaximum() != before || view.lines.isEmpty()) {
+                requestLines();
+            }
+            statusLabel.setText(String.format("Строк: %,d%s, размер: %.1f МБ%s", current.lineCount(),
+                    complete ? "" : "+", current.size() / (1024.0 * 1024.0),
+                    complete ? "" : String.format(", проиндексировано %.0f%%", 100.0 * current.indexedBytes() / Math.max(1, current.size()))));
+        } catch (IOException e) {
+            statusLabel.setText("Ошибка чтения: " + e.getMessage());
+        }
+        if (!followBox.isSelected() && indexing.get() != current) {
+            try {
+                if (current.isComplete()) refreshTimer.stop();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void updateScrollBar() {
+        LineIndex current = index;
+        if (current == null) return;
+        int lines = (int) Math.min(Integer.MAX_VALUE - 1, current.lineCount());
+        int visible = Math.max(1, view.visibleRows());
+        adjusting = true;
+        scrollBar.setValues(Math.min(scrollBar.getValue(), Math.max(0, lines - visible)), visible, 0, Math.max(lines, visible));
+        scrollBar.setBlockIncrement(visible);
+        adjusting = false;
+    }
+
+    private void scrollToEnd() {
+        updateScrollBar();
+        scrollBar.setValue(scrollBar.getMaximum() - scrollBar.getVisibleAmount());
+        requestLines();
+    }
+
+    private void goToLine() {
+        LineIndex current = index;
+        if (current == null) return;
+        try {
+            long line = Long.parseLong(lineField.getText().trim().replace(" ", "")) - 1;
+            if (line < 0 || line >= current.lineCount()) {
+                statusLabel.setText("Нет такой строки (проиндексировано " + current.lineCount() + ")");
+                return;
+            }
+            followBox.setSelected(false);
+            updateScrollBar();
+            scrollBar.setValue((int) Math.min(line, Integer.MAX_VALUE - 1));
+            requestLines();
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Некорректный номер строки");
+        }
+    }
+
+    private void requestLines() {
+        LineIndex current = index;
+        if (current == null) return;
+        long first = scrollBar.getValue();
+        int rows = view.visibleRows() + 1;
+        long request = requests.incrementAndGet();
+        reader.execute(() -> {
+            if (requests.get() != request) return;
+            try {
+                List<String> lines = current.readLines(first, rows);
+                SwingUtilities.invokeLater(() -> {
+                    if (requests.get() == request && index == current) view.setLines(first, lines);
+                });
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    private static void closeQuietly(LineIndex index) {
+        try {
+            index.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static class LineView extends JComponent {
+        private long firstLine = 0;
+        private List<String> lines = List.of();
+
+        LineView() {
+            setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+            setOpaque(true);
+            setBackground(Color.WHITE);
+        }
+
+        void setLines(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+            repaint();
+        }
+
+        int visibleRows() {
+            return Math.max(1, getHeight() / getFontMetrics(getFont()).getHeight());
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            FontMetrics metrics = g.getFontMetrics(getFont());
+            int height = metrics.getHeight();
+            String widest = Long.toString(firstLine + lines.size());
+            int gutter = metrics.stringWidth(widest) + 12;
+            g.setColor(new Color(0xF0F0F0));
+            g.fillRect(0, 0, gutter - 4, getHeight());
+            g.setFont(getFont());
+            for (int i = 0; i < lines.size(); i++) {
+                int y = i * height + metrics.getAscent();
+                if (y - metrics.getAscent() > getHeight()) break;
+                String number = Long.toString(firstLine + i + 1);
+                g.setColor(Color.GRAY);
+                g.drawString(number, gutter - 8 - metrics.stringWidth(number), y);
+                g.setColor(Color.BLACK);
+                g.drawString(lines.get(i).replace('\t', ' '), gutter, y);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.warm4ik.lab;
+
+import java.nio.file.Path;
+
+public interface ProgressListener {
+    ProgressListener NONE = new ProgressListener() {
+    };
+
+    default void bytesProcessed(long bytes) {
+    }
+
+    default void fileProcessed(Path path) {
+    }
+}
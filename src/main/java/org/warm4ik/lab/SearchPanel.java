@@ -0,0 +1,140 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class SearchPanel extends JPanel {
+    private static final int MAX_RESULTS = 1000;
+    private static final int DEBOUNCE_MS = 150;
+    private static final String[] COLUMNS = {"Имя", "Папка", "Размер", "Изменен"};
+
+    private final FileIndex index;
+    private final JTextField queryField = new JTextField();
+    private final JLabel statusLabel = new JLabel(" ");
+    private final ResultsTableModel tableModel = new ResultsTableModel();
+    private final JTable table = new JTable(tableModel);
+    private final Timer debounce;
+    private SwingWorker<List<FileIndex.Hit>, Void> activeSearch;
+
+    public SearchPanel(FileIndex index, Runnable reindex, Consumer<Path> onOpen) {
+        super(new BorderLayout());
+        this.index = index;
+        debounce = new Timer(DEBOUNCE_MS, e -> refresh());
+        debounce.setRepeats(false);
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+        queryField.addActionListener(e -> refresh());
+
+        JButton reindexButton = new JButton("Индексировать");
+        reindexButton.addActionListener(e -> reindex.run());
+
+        JPanel top = new JPanel(new BorderLayout(4, 0));
+        top.add(new JLabel("Поиск (подстрока или маска *, ?):"), BorderLayout.WEST);
+        top.add(queryField, BorderLayout.CENTER);
+        top.add(reindexButton, BorderLayout.EAST);
+        add(top, BorderLayout.NORTH);
+
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(1).setPreferredWidth(300);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0) {
+                    onOpen.accept(tableModel.hits.get(row).path());
+                }
+            }
+        });
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    public void refresh() {
+        if (activeSearch != null) activeSearch.cancel(true);
+        String query = queryField.getText();
+        activeSearch = new SwingWorker<>() {
+            private long elapsedNanos;
+
+            @Override
+            protected List<FileIndex.Hit> doInBackground() {
+                long start = System.nanoTime();
+                List<FileIndex.Hit> hits = index.search(query, MAX_RESULTS);
+                elapsedNanos = System.nanoTime() - start;
+                return hits;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) return;
+                try {
+                    tableModel.setHits(get());
+                    statusLabel.setText(String.format("Найдено: %d%s за %.1f мс, в индексе %d объектов",
+                            tableModel.hits.size(), tableModel.hits.size() >= MAX_RESULTS ? "+" : "",
+                            elapsedNanos / 1_000_000.0, index.size()));
+                } catch (Exception ex) {
+                    statusLabel.setText("Ошибка поиска: " + ex.getMessage());
+                }
+            }
+        };
+        activeSearch.execute();
+    }
+
+    private static class ResultsTableModel extends AbstractTableModel {
+        private List<FileIndex.Hit> hits = List.of();
+
+        void setHits(List<FileIndex.Hit> hits) {
+            this.hits = hits;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return hits.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FileIndex.Hit hit = hits.get(row);
+            return switch (column) {
+                case 0 -> hit.path().getFileName() != null ? hit.path().getFileName().toString() : hit.path().toString();
+                case 1 -> hit.path().getParent() != null ? hit.path().getParent().toString() : "";
+                case 2 -> hit.directory() ? "Папка" : String.format("%.1f КБ", hit.size() / 1024.0);
+                case 3 -> FileInfo.formatDate(hit.modified());
+                default -> "";
+            };
+        }
+    }
+}
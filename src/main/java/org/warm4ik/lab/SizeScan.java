@@ -0,0 +1,56 @@
+package org.warm4ik.lab;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class SizeScan {
+    private static final long REPORT_INTERVAL_MS = 200;
+
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder directories = new LongAdder();
+    private final AtomicLong lastReport = new AtomicLong();
+    private final Consumer<DirectorySize> listener;
+    private volatile boolean cancelled = false;
+    private ForkJoinTask<DirectorySize> task;
+
+    SizeScan(Consumer<DirectorySize> listener) {
+        this.listener = listener;
+    }
+
+    void start(ForkJoinTask<DirectorySize> task) {
+        this.task = task;
+    }
+
+    void add(long bytes, long files, long directories) {
+        this.bytes.add(bytes);
+        this.files.add(files);
+        this.directories.add(directories);
+        if (listener == null) return;
+        long now = System.currentTimeMillis();
+        long last = lastReport.get();
+        if (now - last >= REPORT_INTERVAL_MS && lastReport.compareAndSet(last, now)) {
+            listener.accept(snapshot());
+        }
+    }
+
+    public DirectorySize snapshot() {
+        return new DirectorySize(bytes.sum(), files.sum(), directories.sum());
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public DirectorySize await() {
+        DirectorySize result = task.join();
+        if (listener != null) listener.accept(result);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package org.warm4ik.lab;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+
+public class SubtreeEvictor {
+    private final FileTreeModel model;
+    private final long budgetBytes;
+    private final Consumer<FileTreeNode> onEvict;
+    private final LinkedHashSet<FileTreeNode> collapsed = new LinkedHashSet<>();
+    private long evictions = 0;
+    private long evictedBytes = 0;
+
+    public SubtreeEvictor(FileTreeModel model, long budgetBytes, Consumer<FileTreeNode> onEvict) {
+        this.model = model;
+        this.budgetBytes = budgetBytes;
+        this.onEvict = onEvict;
+    }
+
+    public void expanded(FileTreeNode node) {
+        collapsed.remove(model.canonical(node));
+    }
+
+    public void collapsed(FileTreeNode node) {
+        node = model.canonical(node);
+        if (!node.isLoaded() || node.isRoot()) return;
+        collapsed.remove(node);
+        collapsed.add(node);
+        enforce();
+    }
+
+    public void enforce() {
+        long usage = model.estimatedBytes();
+        Iterator<FileTreeNode> it = collapsed.iterator();
+        while (usage > budgetBytes && it.hasNext()) {
+            FileTreeNode eldest = it.next();
+            it.remove();
+            if (!eldest.isLoaded()) continue;
+            long freed = model.estimatedBytes(eldest);
+            onEvict.accept(eldest);
+            model.unload(eldest);
+            collapsed.removeIf(node -> node.isDescendantOf(eldest));
+            it = collapsed.iterator();
+            usage -= freed;
+            evictions++;
+            evictedBytes += freed;
+        }
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    public long usageBytes() {
+        return model.estimatedBytes();
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public long evictedBytes() {
+        return evictedBytes;
+    }
+}
@@ -0,0 +1,370 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+public class SyncEngine {
+    private static final int MAX_REPORTED_FAILURES = 1000;
+    private static final String TEMP_SUFFIX = ".sync-tmp";
+    private static final Set<String> COARSE_TIME_STORES = Set.of("vfat", "msdos", "exfat", "fat", "fat32");
+
+    public record Options(boolean compareContent, boolean deleteExtras) {
+    }
+
+    public record Transfer(Path source, Path target, long size, FileTime modified, boolean replace) {
+    }
+
+    public record Plan(Path source, Path target, List<Path> conflicts, List<Path> directories,
+                       List<Transfer> transfers, List<Path> extras, List<BatchReport.Failure> unreadable,
+                       long unchanged, long totalBytes) {
+        public long totalFiles() {
+            return transfers.size() + extras.size();
+        }
+
+        public String summary() {
+            long replaced = transfers.stream().filter(Transfer::replace).count();
+            String text = String.format("Новых: %d, измененных: %d, без изменений: %d, лишних: %d, к копированию: %.2f МБ",
+                    transfers.size() - replaced, replaced, unchanged, extras.size(), totalBytes / (1024.0 * 1024.0));
+            return unreadable.isEmpty() ? text : text + ", не прочитано: " + unreadable.size();
+        }
+    }
+
+    private final CopyEngine copyEngine;
+    private final DeleteEngine deleteEngine;
+    private final ForkJoinPool comparePool;
+    private final ExecutorService pool;
+    private final int bufferSize;
+    private final long modifyWindowMillis;
+
+    public SyncEngine(CopyEngine copyEngine, DeleteEngine deleteEngine) {
+        this(copyEngine, deleteEngine,
+                Integer.getInteger("explorer.syncThreads", Math.max(4, Runtime.getRuntime().availableProcessors())),
+                Integer.getInteger("explorer.syncBuffer", 256 * 1024),
+                Long.getLong("explorer.syncModifyWindowMs", 0));
+    }
+
+    public SyncEngine(CopyEngine copyEngine, DeleteEngine deleteEngine, int threads, int bufferSize,
+                      long modifyWindowMillis) {
+        this.copyEngine = copyEngine;
+        this.deleteEngine = deleteEngine;
+        this.bufferSize = bufferSize;
+        this.modifyWindowMillis = modifyWindowMillis;
+        this.comparePool = new ForkJoinPool(threads);
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "sync-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Plan plan(Path source, Path target, Options options, BooleanSupplier cancelled) throws IOException {
+        source = source.toAbsolutePath().normalize();
+        target = target.toAbsolutePath().normalize();
+        if (!Files.isDirectory(source)) {
+            throw new IOException("Синхронизировать можно только папку: " + source);
+        }
+        if (target.startsWith(source) || source.startsWith(target)) {
+            throw new IOException("Папки источника и назначения вложены друг в друга");
+        }
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("Назначение не является папкой: " + target);
+        }
+        long window = modifyWindowMillis;
+        Path existing = target;
+        while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+        if (existing != null && COARSE_TIME_STORES.contains(Files.getFileStore(existing).type().toLowerCase(Locale.ROOT))) {
+            window = Math.max(window, 2000);
+        }
+        Collector collector = new Collector(source, options, window, cancelled);
+        try {
+            comparePool.invoke(new CompareTask(collector, source, target, Files.isDirectory(target)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (cancelled.getAsBoolean()) throw new CancellationException();
+
+        List<Path> directories = new ArrayList<>(collector.directories);
+        directories.sort(Comparator.comparingInt(Path::getNameCount).thenComparing(Comparator.naturalOrder()));
+        List<Transfer> transfers = new ArrayList<>(collector.transfers);
+        transfers.sort(Comparator.comparing(Transfer::target));
+        List<Path> extras = new ArrayList<>(collector.extras);
+        extras.sort(Comparator.naturalOrder());
+        long bytes = transfers.stream().mapToLong(Transfer::size).sum();
+        List<BatchReport.Failure> unreadable = new ArrayList<>(collector.unreadable);
+        unreadable.sort(Comparator.comparing(BatchReport.Failure::path));
+        return new Plan(source, target, List.copyOf(collector.conflicts), directories, transfers, extras,
+                unreadable, collector.unchanged.sum(), bytes);
+    }
+
+    public BatchReport execute(Plan plan, ProgressListener listener) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicLong completed = new AtomicLong();
+        AtomicInteger failureCount = new AtomicInteger();
+        Queue<BatchReport.Failure> failures = new ConcurrentLinkedQueue<>();
+        Set<Path> failedDirectories = ConcurrentHashMap.newKeySet();
+        for (BatchReport.Failure failure : plan.unreadable()) {
+            if (failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES) failures.add(failure);
+        }
+
+        for (Path conflict : plan.conflicts()) {
+            guard(conflict, () -> delete(conflict), cancelled, failureCount, failures);
+        }
+        for (Path dir : plan.directories()) {
+            if (!guard(dir, () -> Files.createDirectories(dir), cancelled, failureCount, failures)) {
+                failedDirectories.add(dir);
+            }
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (Transfer transfer : plan.transfers()) {
+            if (cancelled.get()) break;
+            if (failedDirectories.contains(transfer.target().getParent())) continue;
+            futures.add(pool.submit(() -> {
+                if (cancelled.get()) return;
+                if (guard(transfer.source(), () -> transfer(transfer, listener), cancelled, failureCount, failures)) {
+                    completed.incrementAndGet();
+                }
+            }));
+        }
+        await(futures, cancelled);
+
+        for (Path extra : plan.extras()) {
+            if (cancelled.get()) break;
+            if (guard(extra, () -> {
+                delete(extra);
+                listener.fileProcessed(extra);
+            }, cancelled, failureCount, failures)) {
+                completed.incrementAndGet();
+            }
+        }
+        return new BatchReport(completed.get(), plan.unchanged(), List.copyOf(failures), failureCount.get(), cancelled.get());
+    }
+
+    private interface Step {
+        void run() throws IOException;
+    }
+
+    private static boolean guard(Path path, Step step, AtomicBoolean cancelled, AtomicInteger failureCount,
+                                 Queue<BatchReport.Failure> failures) {
+        if (cancelled.get()) return false;
+        try {
+            step.run();
+            return true;
+        } catch (CancellationException e) {
+            cancelled.set(true);
+        } catch (IOException | RuntimeException e) {
+            if (e.getCause() instanceof CancellationException) {
+                cancelled.set(true);
+            } else if (failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+                failures.add(new BatchReport.Failure(path, e.getMessage() != null ? e.getMessage() : e.toString()));
+            }
+        }
+        return false;
+    }
+
+    private static void await(List<Future<?>> futures, AtomicBoolean cancelled) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                cancelled.set(true);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+            }
+        }
+    }
+
+    private void transfer(Transfer transfer, ProgressListener listener) throws IOException {
+        Path temp = transfer.target().resolveSibling("." + transfer.target().getFileName() + TEMP_SUFFIX);
+        try {
+            copyEngine.copy(transfer.source(), temp, listener);
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(transfer.source()));
+            } catch (IOException | UnsupportedOperationException ignored) {
+            }
+            Files.setLastModifiedTime(temp, transfer.modified());
+            try {
+                Files.move(temp, transfer.target(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, transfer.target(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void delete(Path path) throws IOException {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            DeleteReport report = deleteEngine.delete(path, ProgressListener.NONE);
+            if (report.cancelled()) throw new CancellationException();
+            if (!report.isSuccess()) {
+                throw new IOException("не удалось удалить " + report.failureCount() + " объектов");
+            }
+        } else {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private boolean sameContent(Path a, Path b, long size) throws IOException {
+        ByteBuffer left = ByteBuffer.allocate(bufferSize);
+        ByteBuffer right = ByteBuffer.allocate(bufferSize);
+        try (FileChannel first = FileChannel.open(a, StandardOpenOption.READ);
+             FileChannel second = FileChannel.open(b, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < size) {
+                left.clear();
+                right.clear();
+                int limit = (int) Math.min(bufferSize, size - position);
+                left.limit(limit);
+                right.limit(limit);
+                while (left.hasRemaining() && first.read(left) >= 0) {
+                }
+                while (right.hasRemaining() && second.read(right) >= 0) {
+                }
+                if (left.hasRemaining() || right.hasRemaining()) return false;
+                left.flip();
+                right.flip();
+                if (left.mismatch(right) >= 0) return false;
+                position += limit;
+            }
+        }
+        return true;
+    }
+
+    private static final class Collector {
+        final Path root;
+        final Options options;
+        final long window;
+        final BooleanSupplier cancelled;
+        final Queue<Path> conflicts = new ConcurrentLinkedQueue<>();
+        final Queue<Path> directories = new ConcurrentLinkedQueue<>();
+        final Queue<Transfer> transfers = new ConcurrentLinkedQueue<>();
+        final Queue<Path> extras = new ConcurrentLinkedQueue<>();
+        final Queue<BatchReport.Failure> unreadable = new ConcurrentLinkedQueue<>();
+        final LongAdder unchanged = new LongAdder();
+
+        Collector(Path root, Options options, long window, BooleanSupplier cancelled) {
+            this.root = root;
+            this.options = options;
+            this.window = window;
+            this.cancelled = cancelled;
+        }
+
+        void unreadable(Path path, IOException e) {
+            String reason = e instanceof AccessDeniedException ? "нет доступа"
+                    : e.getMessage() != null ? e.getMessage() : e.toString();
+            unreadable.add(new BatchReport.Failure(path, "не удалось прочитать (" + reason + "), пропущено"));
+        }
+    }
+
+    private record Listing(Map<String, BasicFileAttributes> entries, Set<String> failed) {
+        boolean complete() {
+            return failed.isEmpty();
+        }
+    }
+
+    private static Listing list(Path dir, Collector collector) throws IOException {
+        Map<String, BasicFileAttributes> entries = new HashMap<>();
+        Set<String> failed = new HashSet<>();
+        Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                entries.put(file.getFileName().toString(), attrs);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                if (file.equals(dir)) throw exc;
+                collector.unreadable(file, exc);
+                failed.add(file.getFileName().toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new Listing(entries, failed);
+    }
+
+    private class CompareTask extends RecursiveAction {
+        private final Collector collector;
+        private final Path source;
+        private final Path target;
+        private final boolean targetExists;
+
+        CompareTask(Collector collector, Path source, Path target, boolean targetExists) {
+            this.collector = collector;
+            this.source = source;
+            this.target = target;
+            this.targetExists = targetExists;
+        }
+
+        @Override
+        protected void compute() {
+            if (collector.cancelled.getAsBoolean()) return;
+            Listing sourceListing;
+            Listing targetListing;
+            try {
+                sourceListing = list(source, collector);
+                targetListing = targetExists ? list(target, collector) : new Listing(Map.of(), Set.of());
+            } catch (IOException e) {
+                if (source.equals(collector.root)) throw new UncheckedIOException(e);
+                collector.unreadable(source, e);
+                return;
+            }
+            Map<String, BasicFileAttributes> sourceEntries = sourceListing.entries();
+            Map<String, BasicFileAttributes> targetEntries = targetListing.entries();
+            if (!targetExists) collector.directories.add(target);
+            List<CompareTask> subtasks = new ArrayList<>();
+            for (Map.Entry<String, BasicFileAttributes> entry : sourceEntries.entrySet()) {
+                if (entry.getKey().endsWith(TEMP_SUFFIX) || targetListing.failed().contains(entry.getKey())) continue;
+                Path sourceChild = source.resolve(entry.getKey());
+                Path targetChild = target.resolve(entry.getKey());
+                BasicFileAttributes attrs = entry.getValue();
+                BasicFileAttributes existing = targetEntries.get(entry.getKey());
+                if (existing != null && existing.isDirectory() != attrs.isDirectory()) {
+                    collector.conflicts.add(targetChild);
+                    existing = null;
+                }
+                if (attrs.isDirectory()) {
+                    subtasks.add(new CompareTask(collector, sourceChild, targetChild, existing != null));
+                } else if (existing == null) {
+                    collector.transfers.add(new Transfer(sourceChild, targetChild, attrs.size(), attrs.lastModifiedTime(), false));
+                } else if (changed(sourceChild, targetChild, attrs, existing)) {
+                    collector.transfers.add(new Transfer(sourceChild, targetChild, attrs.size(), attrs.lastModifiedTime(), true));
+                } else {
+                    collector.unchanged.increment();
+                }
+            }
+            if (collector.options.deleteExtras() && sourceListing.complete()) {
+                for (String name : targetEntries.keySet()) {
+                    if (!sourceEntries.containsKey(name)) collector.extras.add(target.resolve(name));
+                }
+            }
+            invokeAll(subtasks);
+        }
+
+        private boolean changed(Path sourceFile, Path targetFile, BasicFileAttributes attrs, BasicFileAttributes existing) {
+            if (attrs.size() != existing.size()) return true;
+            if (collector.options.compareContent()) {
+                try {
+                    return !sameContent(sourceFile, targetFile, attrs.size());
+                } catch (IOException e) {
+                    return true;
+                }
+            }
+            long delta = attrs.lastModifiedTime().toMillis() - existing.lastModifiedTime().toMillis();
+            return Math.abs(delta) > collector.window;
+        }
+    }
+}
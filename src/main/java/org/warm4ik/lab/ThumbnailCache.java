@@ -0,0 +1,266 @@
+package org.warm4ik.lab;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ThumbnailCache {
+    private static final String DISK_FORMAT = "jpg";
+    private static final int TRIM_EVERY_WRITES = 1000;
+
+    public record Key(Path path, long size, long modified) {
+    }
+
+    private final class Task implements Runnable, Comparable<Task> {
+        final Key key;
+        final long generation;
+        final long sequence;
+
+        Task(Key key, long generation, long sequence) {
+            this.key = key;
+            this.generation = generation;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (generation != other.generation) return Long.compare(other.generation, generation);
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (ThumbnailCache.this) {
+                if (pending.get(key) != this) return;
+                if (generation < ThumbnailCache.this.generation.get()) {
+                    pending.remove(key);
+                    dropped++;
+                    return;
+                }
+            }
+            BufferedImage image = load(key);
+            synchronized (ThumbnailCache.this) {
+                pending.remove(key);
+                if (image != null) put(key, image);
+                else failed.add(key);
+            }
+            SwingUtilities.invokeLater(onReady);
+        }
+    }
+
+    private final int thumbnailSize;
+    private final long memoryBudget;
+    private final long diskBudget;
+    private final Path diskDir;
+    private final Runnable onReady;
+    private final ThreadPoolExecutor decoder;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LinkedHashMap<Key, BufferedImage> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Key, Task> pending = new HashMap<>();
+    private final Set<Key> failed = new HashSet<>();
+    private long memoryBytes = 0;
+    private long diskWrites = 0;
+    private long diskHits = 0;
+    private long decoded = 0;
+    private long dropped = 0;
+
+    public ThumbnailCache(int thumbnailSize, Runnable onReady) {
+        this(thumbnailSize, Integer.getInteger("explorer.thumbThreads", Math.min(4, Runtime.getRuntime().availableProcessors())),
+                Long.getLong("explorer.thumbCacheMb", 64) * 1024 * 1024,
+                Long.getLong("explorer.thumbDiskMb", 512) * 1024 * 1024,
+                Paths.get(System.getProperty("explorer.thumbDir",
+                        Paths.get(System.getProperty("user.home"), ".cache", "explorer-thumbnails").toString())),
+                onReady);
+    }
+
+    public ThumbnailCache(int thumbnailSize, int threads, long memoryBudget, long diskBudget, Path diskDir, Runnable onReady) {
+        this.thumbnailSize = thumbnailSize;
+        this.memoryBudget = memoryBudget;
+        this.diskBudget = diskBudget;
+        this.diskDir = diskDir;
+        this.onReady = onReady;
+        this.decoder = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "thumbnail-decoder");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    public synchronized Image get(Key key) {
+        BufferedImage image = memory.get(key);
+        if (image != null || failed.contains(key)) return image;
+        long current = generation.get();
+        Task queued = pending.get(key);
+        if (queued != null && queued.generation == current) return null;
+        Task task = new Task(key, current, sequence.incrementAndGet());
+        pending.put(key, task);
+        decoder.execute(task);
+        return null;
+    }
+
+    public void refocus() {
+        generation.incrementAndGet();
+    }
+
+    public synchronized String summary() {
+        return String.format("Эскизы: %d в памяти (%.1f из %d МБ), декодировано %d, с диска %d, отброшено %d",
+                memory.size(), memoryBytes / (1024.0 * 1024.0), memoryBudget / (1024 * 1024),
+                decoded, diskHits, dropped);
+    }
+
+    private void put(Key key, BufferedImage image) {
+        BufferedImage previous = memory.put(key, image);
+        if (previous != null) memoryBytes -= bytesOf(previous);
+        memoryBytes += bytesOf(image);
+        Iterator<BufferedImage> eldest = memory.values().iterator();
+        while (memoryBytes > memoryBudget && memory.size() > 1) {
+            memoryBytes -= bytesOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long bytesOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private BufferedImage load(Key key) {
+        Path cached = diskDir.resolve(diskName(key));
+        try {
+            BufferedImage image = ImageIO.read(cached.toFile());
+            if (image != null) {
+                Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                synchronized (this) {
+                    diskHits++;
+                }
+                return image;
+            }
+        } catch (IOException | RuntimeException ignored) {
+        }
+        BufferedImage image;
+        try {
+            image = decode(key.path());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        if (image == null) return null;
+        synchronized (this) {
+            decoded++;
+        }
+        store(cached, image);
+        return image;
+    }
+
+    private BufferedImage decode(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int step = Math.max(1, Math.max(width, height) / (thumbnailSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source) {
+        double ratio = Math.min(1.0, (double) thumbnailSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return thumbnail;
+    }
+
+    private void store(Path cached, BufferedImage image) {
+        try {
+            Files.createDirectories(diskDir);
+            Path temp = Files.createTempFile(diskDir, ".thumb", ".tmp");
+            try {
+                if (!ImageIO.write(image, DISK_FORMAT, temp.toFile())) return;
+                Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | RuntimeException e) {
+            return;
+        }
+        boolean trim;
+        synchronized (this) {
+            trim = ++diskWrites % TRIM_EVERY_WRITES == 1;
+        }
+        if (trim) trimDisk();
+    }
+
+    private void trimDisk() {
+        record CachedFile(Path path, long size, long modified) {
+        }
+        List<CachedFile> files = new ArrayList<>();
+        long[] total = new long[1];
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDir, "*." + DISK_FORMAT)) {
+            for (Path file : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                files.add(new CachedFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                total[0] += attrs.size();
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            return;
+        }
+        if (total[0] <= diskBudget) return;
+        files.sort(Comparator.comparingLong(CachedFile::modified));
+        long target = diskBudget * 3 / 4;
+        for (CachedFile file : files) {
+            if (total[0] <= target) break;
+            try {
+                Files.deleteIfExists(file.path());
+                total[0] -= file.size();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private String diskName(Key key) {
+        String source = key.path().toAbsolutePath().normalize() + "|" + key.size() + "|" + key.modified() + "|" + thumbnailSize;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + "." + DISK_FORMAT;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
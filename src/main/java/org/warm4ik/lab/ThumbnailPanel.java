@@ -0,0 +1,161 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class ThumbnailPanel extends JPanel {
+    private static final int THUMBNAIL_SIZE = Integer.getInteger("explorer.thumbSize", 128);
+    private static final int LIST_CHUNK_SIZE = 512;
+    private static final int CELL_PADDING = 8;
+
+    private final JLabel titleLabel = new JLabel(" ");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final DefaultListModel<FileEntry> model = new DefaultListModel<>();
+    private final JList<FileEntry> list = new JList<>(model);
+    private final ThumbnailCache cache = new ThumbnailCache(THUMBNAIL_SIZE, this::thumbnailReady);
+    private final Timer repaintTimer = new Timer(40, e -> list.repaint());
+    private final AtomicLong generation = new AtomicLong();
+    private SwingWorker<Void, List<FileEntry>> loader;
+    private Path directory;
+
+    public ThumbnailPanel(Consumer<Path> onOpen) {
+        super(new BorderLayout());
+        list.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        list.setVisibleRowCount(-1);
+        list.setFixedCellWidth(THUMBNAIL_SIZE + CELL_PADDING * 2);
+        list.setFixedCellHeight(THUMBNAIL_SIZE + CELL_PADDING * 2 + list.getFontMetrics(list.getFont()).getHeight());
+        list.setCellRenderer(new ThumbnailRenderer());
+        ToolTipManager.sharedInstance().registerComponent(list);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() != 2) return;
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) onOpen.accept(model.get(index).path());
+            }
+        });
+        repaintTimer.setRepeats(false);
+
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(list.getFixedCellHeight() / 4);
+        scrollPane.getViewport().addChangeListener(e -> cache.refocus());
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(titleLabel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    public static boolean isImage(FileEntry entry) {
+        return !entry.directory()
+                && "Изображение".equals(FileInfoReader.typeOf(FileInfoReader.extensionOf(entry.name(), false), false));
+    }
+
+    public void show(Path dir) {
+        if (dir.equals(directory)) return;
+        directory = dir;
+        if (loader != null) loader.cancel(true);
+        long current = generation.incrementAndGet();
+        cache.refocus();
+        model.clear();
+        titleLabel.setText(dir.toString());
+        statusLabel.setText("Чтение папки...");
+        loader = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                DirectoryLister.list(dir, LIST_CHUNK_SIZE,
+                        chunk -> publish(chunk.stream().filter(entry -> !entry.hidden() && isImage(entry)).toList()),
+                        this::isCancelled);
+                return null;
+            }
+
+            @Override
+            protected void process(List<List<FileEntry>> chunks) {
+                if (generation.get() != current) return;
+                for (List<FileEntry> chunk : chunks) {
+                    model.addAll(chunk);
+                }
+                updateStatus(false);
+            }
+
+            @Override
+            protected void done() {
+                if (generation.get() != current || isCancelled()) return;
+                try {
+                    get();
+                    updateStatus(true);
+                } catch (Exception e) {
+                    statusLabel.setText("Ошибка чтения папки: " + e.getMessage());
+                }
+            }
+        };
+        loader.execute();
+    }
+
+    private void updateStatus(boolean complete) {
+        statusLabel.setText("Изображений: " + model.size() + (complete ? "" : "+") + ". " + cache.summary());
+    }
+
+    private void thumbnailReady() {
+        if (!repaintTimer.isRunning()) repaintTimer.start();
+        if (loader != null && loader.isDone() && !loader.isCancelled()) updateStatus(true);
+    }
+
+    private static class ThumbnailIcon implements Icon {
+        private final Icon placeholder = UIManager.getIcon("FileView.fileIcon");
+        private Image image;
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            if (image == null) {
+                placeholder.paintIcon(c, g, x + (THUMBNAIL_SIZE - placeholder.getIconWidth()) / 2,
+                        y + (THUMBNAIL_SIZE - placeholder.getIconHeight()) / 2);
+                return;
+            }
+            int width = image.getWidth(null);
+            int height = image.getHeight(null);
+            g.drawImage(image, x + (THUMBNAIL_SIZE - width) / 2, y + (THUMBNAIL_SIZE - height) / 2, null);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return THUMBNAIL_SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return THUMBNAIL_SIZE;
+        }
+    }
+
+    private class ThumbnailRenderer extends JLabel implements ListCellRenderer<FileEntry> {
+        private final ThumbnailIcon icon = new ThumbnailIcon();
+
+        ThumbnailRenderer() {
+            setOpaque(true);
+            setHorizontalAlignment(CENTER);
+            setVerticalAlignment(CENTER);
+            setHorizontalTextPosition(CENTER);
+            setVerticalTextPosition(BOTTOM);
+            setBorder(BorderFactory.createEmptyBorder(CELL_PADDING, CELL_PADDING / 2, CELL_PADDING / 2, CELL_PADDING / 2));
+            setIcon(icon);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends FileEntry> list, FileEntry entry, int index,
+                                                      boolean selected, boolean focused) {
+            icon.image = cache.get(new ThumbnailCache.Key(entry.path(), entry.size(), entry.modified()));
+            setText(entry.name());
+            setToolTipText(entry.path().toString());
+            setBackground(selected ? list.getSelectionBackground() : list.getBackground());
+            setForeground(selected ? list.getSelectionForeground() : list.getForeground());
+            return this;
+        }
+    }
+}
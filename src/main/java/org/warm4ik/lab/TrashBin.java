@@ -0,0 +1,214 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TrashBin {
+    public static final String TRASH_DIR_NAME = ".explorer-trash";
+    private static final long PURGE_INTERVAL_MS = 2000;
+
+    public record TrashEntry(Path original, Path staged, long deletedAt) {
+    }
+
+    private final DeleteEngine deleteEngine;
+    private final long retentionMillis;
+    private final int maxUndo;
+    private final BandwidthThrottle purgeThrottle;
+    private final Deque<TrashEntry> entries = new ArrayDeque<>();
+    private final List<TrashEntry> orphans = new ArrayList<>();
+    private final Map<FileStore, Path> stagingDirs = new ConcurrentHashMap<>();
+    private final Map<Path, Path> localStagingDirs = new ConcurrentHashMap<>();
+    private final Set<Path> scannedStagingDirs = ConcurrentHashMap.newKeySet();
+    private final AtomicLong counter = new AtomicLong();
+
+    public TrashBin(DeleteEngine deleteEngine, long retentionMillis, int maxUndo, long purgeFilesPerSecond) {
+        this.deleteEngine = deleteEngine;
+        this.retentionMillis = retentionMillis;
+        this.maxUndo = maxUndo;
+        this.purgeThrottle = new BandwidthThrottle(purgeFilesPerSecond);
+        Thread purger = new Thread(this::purgeLoop, "trash-purger");
+        purger.setDaemon(true);
+        purger.setPriority(Thread.MIN_PRIORITY);
+        purger.start();
+    }
+
+    public TrashEntry moveToTrash(Path path) throws IOException {
+        Path source = path.toAbsolutePath().normalize();
+        Path stagingDir = stagingDirFor(source);
+        Path fileName = source.getFileName();
+        Path staged = stagingDir.resolve(System.currentTimeMillis() + "-" + counter.incrementAndGet() + "-" + fileName);
+        synchronized (this) {
+            if (!Files.isDirectory(stagingDir)) {
+                localStagingDirs.remove(source.getParent());
+                stagingDir = stagingDirFor(source);
+                staged = stagingDir.resolve(staged.getFileName());
+            }
+            Files.move(source, staged, StandardCopyOption.ATOMIC_MOVE);
+            TrashEntry entry = new TrashEntry(source, staged, System.currentTimeMillis());
+            entries.addLast(entry);
+            return entry;
+        }
+    }
+
+    public synchronized boolean canUndo() {
+        return !entries.isEmpty();
+    }
+
+    public TrashEntry undo() throws IOException {
+        TrashEntry entry;
+        synchronized (this) {
+            entry = entries.pollLast();
+        }
+        if (entry == null) return null;
+        try {
+            if (Files.exists(entry.original(), LinkOption.NOFOLLOW_LINKS)) {
+                throw new FileAlreadyExistsException(entry.original().toString());
+            }
+            Files.move(entry.staged(), entry.original());
+        } catch (FileAlreadyExistsException e) {
+            synchronized (this) {
+                entries.addLast(entry);
+            }
+            throw new IOException("Объект с таким именем уже существует: " + entry.original(), e);
+        } catch (IOException e) {
+            synchronized (this) {
+                entries.addLast(entry);
+            }
+            throw e;
+        }
+        return entry;
+    }
+
+    public synchronized List<TrashEntry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    private Path stagingDirFor(Path source) throws IOException {
+        FileStore store = Files.getFileStore(source);
+        Path cached = stagingDirs.get(store);
+        if (cached != null) return cached;
+        Path volumeRoot = source;
+        while (volumeRoot.getParent() != null && sameStore(volumeRoot.getParent(), store)) {
+            volumeRoot = volumeRoot.getParent();
+        }
+        List<Path> candidates = new ArrayList<>();
+        candidates.add(volumeRoot.resolve(TRASH_DIR_NAME));
+        Path home = Paths.get(System.getProperty("user.home"));
+        if (sameStore(home, store)) {
+            candidates.add(home.resolve(TRASH_DIR_NAME));
+        }
+        for (Path candidate : candidates) {
+            if (prepareStagingDir(candidate)) {
+                stagingDirs.put(store, candidate);
+                return candidate;
+            }
+        }
+        Path parent = source.getParent();
+        Path local = localStagingDirs.get(parent);
+        if (local != null) return local;
+        local = parent.resolve(TRASH_DIR_NAME);
+        if (prepareStagingDir(local)) {
+            localStagingDirs.put(parent, local);
+            return local;
+        }
+        throw new IOException("Нет доступной папки корзины на томе " + store.name());
+    }
+
+    private boolean prepareStagingDir(Path dir) {
+        try {
+            boolean existed = Files.isDirectory(dir);
+            Files.createDirectories(dir);
+            if (!Files.isWritable(dir)) return false;
+            if (dir.getFileSystem().supportedFileAttributeViews().contains("dos")) {
+                Files.setAttribute(dir, "dos:hidden", true);
+            }
+            if (existed && scannedStagingDirs.add(dir.toAbsolutePath().normalize())) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    synchronized (this) {
+                        Set<Path> live = new HashSet<>();
+                        entries.forEach(entry -> live.add(entry.staged()));
+                        for (Path orphan : stream) {
+                            long deletedAt = stagedAt(orphan);
+                            if (deletedAt > 0 && !live.contains(orphan)) orphans.add(new TrashEntry(null, orphan, deletedAt));
+                        }
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static long stagedAt(Path staged) {
+        String name = staged.getFileName().toString();
+        int dash = name.indexOf('-');
+        try {
+            return dash > 0 ? Long.parseLong(name.substring(0, dash)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean sameStore(Path path, FileStore store) {
+        try {
+            return Files.getFileStore(path).equals(store);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void purgeLoop() {
+        while (true) {
+            try {
+                Thread.sleep(PURGE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            Path next;
+            while ((next = nextPurgeable()) != null) {
+                deleteEngine.delete(next, new ProgressListener() {
+                    @Override
+                    public void fileProcessed(Path path) {
+                        purgeThrottle.acquire(1, () -> false);
+                    }
+                });
+                removeIfEmptyLocal(next.getParent());
+            }
+        }
+    }
+
+    private synchronized void removeIfEmptyLocal(Path stagingDir) {
+        Path parent = stagingDir.getParent();
+        if (parent == null || !stagingDir.equals(localStagingDirs.get(parent))) return;
+        for (TrashEntry entry : entries) {
+            if (entry.staged().getParent().equals(stagingDir)) return;
+        }
+        try {
+            Files.delete(stagingDir);
+            localStagingDirs.remove(parent);
+            scannedStagingDirs.remove(stagingDir.toAbsolutePath().normalize());
+        } catch (IOException ignored) {
+        }
+    }
+
+    private synchronized Path nextPurgeable() {
+        long now = System.currentTimeMillis();
+        for (Iterator<TrashEntry> it = orphans.iterator(); it.hasNext(); ) {
+            TrashEntry orphan = it.next();
+            if (now - orphan.deletedAt() < retentionMillis) continue;
+            it.remove();
+            return orphan.staged();
+        }
+        TrashEntry oldest = entries.peekFirst();
+        if (oldest == null) return null;
+        if (entries.size() > maxUndo || now - oldest.deletedAt() >= retentionMillis) {
+            entries.pollFirst();
+            return oldest.staged();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,185 @@
+package org.warm4ik.lab;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TreemapPanel extends JComponent {
+    private static final int MAX_ITEMS = 300;
+    private static final Color[] PALETTE = {
+            new Color(0x4E79A7), new Color(0xF28E2B), new Color(0xE15759), new Color(0x76B7B2),
+            new Color(0x59A14F), new Color(0xEDC948), new Color(0xB07AA1), new Color(0xFF9DA7)
+    };
+
+    private record Cell(DiskUsageScan.Item item, Rectangle2D bounds) {
+    }
+
+    private record Layout(DiskUsageScan.Item current, List<Cell> cells) {
+    }
+
+    private final DiskUsageScan scan;
+    private int currentId = 0;
+    private DiskUsageScan.Item current;
+    private List<Cell> cells = List.of();
+    private SwingWorker<Layout, Void> worker;
+    private boolean stale;
+
+    public TreemapPanel(DiskUsageScan scan) {
+        this.scan = scan;
+        setToolTipText("");
+        setPreferredSize(new Dimension(600, 500));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    int parent = scan.parentOf(currentId);
+                    if (parent >= 0) currentId = parent;
+                } else {
+                    Cell cell = cellAt(e.getPoint());
+                    if (cell != null && cell.item().directory()) currentId = cell.item().id();
+                }
+                refresh();
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                refresh();
+            }
+        });
+    }
+
+    public void refresh() {
+        if (worker != null && !worker.isDone()) {
+            stale = true;
+            return;
+        }
+        stale = false;
+        int id = currentId;
+        int header = getFontMetrics(getFont()).getHeight() + 4;
+        Rectangle2D bounds = new Rectangle2D.Double(0, header, getWidth(), getHeight() - header);
+        worker = new SwingWorker<>() {
+            @Override
+            protected Layout doInBackground() {
+                List<DiskUsageScan.Item> items = scan.children(id).stream()
+                        .filter(item -> item.bytes() > 0).limit(MAX_ITEMS).toList();
+                return new Layout(scan.item(id), layout(items, bounds));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Layout result = get();
+                    if (id == currentId) {
+                        current = result.current();
+                        cells = result.cells();
+                        repaint();
+                    }
+                } catch (Exception ignored) {
+                }
+                if (stale || id != currentId) refresh();
+            }
+        };
+        worker.execute();
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        Cell cell = cellAt(e.getPoint());
+        if (cell == null) return null;
+        DiskUsageScan.Item item = cell.item();
+        return String.format("%s%s — %.2f МБ, файлов: %d", item.path(), item.directory() ? "" : " (файлы)",
+                item.bytes() / (1024.0 * 1024.0), item.files());
+    }
+
+    private Cell cellAt(Point point) {
+        for (Cell cell : cells) {
+            if (cell.bounds().contains(point)) return cell;
+        }
+        return null;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+        g2.fillRect(0, 0, getWidth(), getHeight());
+        if (current == null) return;
+        int header = g2.getFontMetrics().getHeight() + 4;
+        g2.setColor(Color.DARK_GRAY);
+        g2.drawString(String.format("%s — %.2f МБ (правый щелчок — вверх)", current.path(),
+                current.bytes() / (1024.0 * 1024.0)), 4, header - 6);
+
+        FontMetrics metrics = g2.getFontMetrics();
+        for (int i = 0; i < cells.size(); i++) {
+            Cell cell = cells.get(i);
+            Rectangle2D r = cell.bounds();
+            g2.setColor(cell.item().directory() ? PALETTE[i % PALETTE.length] : Color.LIGHT_GRAY);
+            g2.fill(r);
+            g2.setColor(Color.WHITE);
+            g2.draw(r);
+            String label = cell.item().directory() ? cell.item().path().getFileName() + "" : "файлы";
+            if (r.getWidth() > metrics.stringWidth(label) + 6 && r.getHeight() > metrics.getHeight() + 4) {
+                g2.setColor(Color.BLACK);
+                g2.drawString(label, (float) r.getX() + 3, (float) r.getY() + metrics.getAscent() + 2);
+            }
+        }
+    }
+
+    private static List<Cell> layout(List<DiskUsageScan.Item> items, Rectangle2D bounds) {
+        List<Cell> result = new ArrayList<>();
+        double total = items.stream().mapToDouble(DiskUsageScan.Item::bytes).sum();
+        if (total <= 0 || bounds.getWidth() <= 0 || bounds.getHeight() <= 0) return result;
+        double scale = bounds.getWidth() * bounds.getHeight() / total;
+        double x = bounds.getX(), y = bounds.getY(), w = bounds.getWidth(), h = bounds.getHeight();
+        int start = 0;
+        while (start < items.size()) {
+            double side = Math.min(w, h);
+            int end = start;
+            double rowArea = 0;
+            double worst = Double.MAX_VALUE;
+            while (end < items.size()) {
+                double area = items.get(end).bytes() * scale;
+                double candidate = worstRatio(items, start, end + 1, rowArea + area, side, scale);
+                if (end > start && candidate > worst) break;
+                worst = candidate;
+                rowArea += area;
+                end++;
+            }
+            double thickness = rowArea / side;
+            double offset = 0;
+            for (int i = start; i < end; i++) {
+                double length = items.get(i).bytes() * scale / thickness;
+                Rectangle2D r = w >= h
+                        ? new Rectangle2D.Double(x, y + offset, thickness, length)
+                        : new Rectangle2D.Double(x + offset, y, length, thickness);
+                result.add(new Cell(items.get(i), r));
+                offset += length;
+            }
+            if (w >= h) {
+                x += thickness;
+                w -= thickness;
+            } else {
+                y += thickness;
+                h -= thickness;
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    private static double worstRatio(List<DiskUsageScan.Item> items, int from, int to,
+                                     double rowArea, double side, double scale) {
+        double max = items.get(from).bytes() * scale;
+        double min = items.get(to - 1).bytes() * scale;
+        double sideSquared = side * side;
+        double areaSquared = rowArea * rowArea;
+        return Math.max(sideSquared * max / areaSquared, areaSquared / (sideSquared * min));
+    }
+}
@@ -0,0 +1,530 @@
+package org.warm4ik.lab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class ZipCompressor {
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int DICTIONARY = 32 * 1024;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final long ZIP64_LOCAL_THRESHOLD = 0xF0000000L;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final Set<String> STORED_EXTENSIONS = Set.of(
+            "mp3", "ogg", "flac", "aac", "m4a", "mp4", "mkv", "avi", "mov", "webm", "webp", "heic",
+            "7z", "gz", "bz2", "xz", "zst", "jar", "war", "apk", "docx", "xlsx", "pptx", "odt");
+
+    public record Result(Path archive, long entries, long originalBytes, long compressedBytes) {
+        public String summary() {
+            return String.format("Файлов: %d, %.2f МБ → %.2f МБ (%.0f%%)", entries,
+                    originalBytes / (1024.0 * 1024.0), compressedBytes / (1024.0 * 1024.0),
+                    originalBytes > 0 ? 100.0 * compressedBytes / originalBytes : 100.0);
+        }
+    }
+
+    private record Item(Path path, byte[] name, long size, long modified, boolean directory) {
+    }
+
+    private record Blob(Item item, int method, int crc, byte[] data, int length) {
+    }
+
+    private record Chunk(byte[] data, int length, int rawLength, int crc) {
+    }
+
+    private record Unit(Item item, int method, boolean first, boolean last, Future<?> future) {
+    }
+
+    private record CentralEntry(byte[] name, int method, int dosTime, int crc, long compressedSize, long size,
+                                long offset, boolean directory) {
+    }
+
+    private final ExecutorService pool;
+    private final int threads;
+    private final int chunkSize;
+    private final int smallFileThreshold;
+    private final int batchBytes;
+    private final int level;
+    private final ThreadLocal<Deflater> deflaters;
+
+    public ZipCompressor() {
+        this(Integer.getInteger("explorer.zipThreads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("explorer.zipChunk", 1024 * 1024),
+                Integer.getInteger("explorer.zipSmallFile", 64 * 1024),
+                Integer.getInteger("explorer.zipBatch", 1024 * 1024),
+                Integer.getInteger("explorer.zipLevel", Deflater.DEFAULT_COMPRESSION));
+    }
+
+    public ZipCompressor(int threads, int chunkSize, int smallFileThreshold, int batchBytes, int level) {
+        this.threads = Math.max(1, threads);
+        this.chunkSize = chunkSize;
+        this.smallFileThreshold = smallFileThreshold;
+        this.batchBytes = batchBytes;
+        this.level = level;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(this.level, true));
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread thread = new Thread(r, "zip-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Result compress(Path source, Path archive, ProgressListener listener) throws IOException {
+        source = source.toAbsolutePath().normalize();
+        archive = archive.toAbsolutePath().normalize();
+        List<Item> items = collect(source, archive);
+        Path temp = Files.createTempFile(archive.getParent(), "." + archive.getFileName(), ".part");
+        Deque<Unit> pending = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(channel);
+            Iterator<Unit> units = units(items).iterator();
+            int window = threads * 4;
+            while (units.hasNext() || !pending.isEmpty()) {
+                while (pending.size() < window && units.hasNext()) {
+                    pending.add(units.next());
+                }
+                writer.write(pending.poll(), listener);
+            }
+            writer.finish();
+            channel.force(false);
+            Result result = new Result(archive, writer.central.size(), writer.originalBytes, channel.size());
+            if (Files.exists(archive) && Files.getFileStore(archive).supportsFileAttributeView("posix")) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(archive));
+            }
+            try {
+                Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            for (Unit unit : pending) {
+                if (unit.future() != null) unit.future().cancel(true);
+            }
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static List<Item> collect(Path source, Path archive) throws IOException {
+        List<Item> items = new ArrayList<>();
+        Path base = source.getParent() != null ? source.getParent() : source;
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                items.add(new Item(dir, entryName(base, dir, true), 0, attrs.lastModifiedTime().toMillis(), true));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !file.equals(archive)) {
+                    items.add(new Item(file, entryName(base, file, false), attrs.size(),
+                            attrs.lastModifiedTime().toMillis(), false));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                throw exc;
+            }
+        });
+        return items;
+    }
+
+    private static byte[] entryName(Path base, Path path, boolean directory) {
+        StringBuilder name = new StringBuilder();
+        for (Path part : base.relativize(path)) {
+            if (name.length() > 0) name.append('/');
+            name.append(part);
+        }
+        if (directory) name.append('/');
+        return name.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Iterable<Unit> units(List<Item> items) {
+        return () -> new Iterator<>() {
+            private int next = 0;
+            private Item chunked = null;
+            private long chunkOffset = 0;
+
+            @Override
+            public boolean hasNext() {
+                return chunked != null || next < items.size();
+            }
+
+            @Override
+            public Unit next() {
+                if (chunked != null) return nextChunk();
+                Item item = items.get(next);
+                if (item.directory()) {
+                    next++;
+                    return new Unit(item, STORED, true, true, null);
+                }
+                if (item.size() > smallFileThreshold) {
+                    next++;
+                    chunked = item;
+                    chunkOffset = 0;
+                    return nextChunk();
+                }
+                List<Item> batch = new ArrayList<>();
+                long bytes = 0;
+                while (next < items.size() && bytes < batchBytes) {
+                    Item small = items.get(next);
+                    if (small.directory() || small.size() > smallFileThreshold) break;
+                    batch.add(small);
+                    bytes += small.size();
+                    next++;
+                }
+                return new Unit(null, DEFLATED, true, true, pool.submit(() -> compressBatch(batch)));
+            }
+
+            private Unit nextChunk() {
+                Item item = chunked;
+                long offset = chunkOffset;
+                int length = (int) Math.min(chunkSize, item.size() - offset);
+                boolean last = offset + length >= item.size();
+                int method = isPrecompressed(item) ? STORED : DEFLATED;
+                chunkOffset += length;
+                if (last) chunked = null;
+                return new Unit(item, method, offset == 0, last,
+                        pool.submit(() -> compressChunk(item, offset, length, method, last)));
+            }
+        };
+    }
+
+    private static boolean isPrecompressed(Item item) {
+        String name = item.path().getFileName().toString();
+        String extension = FileInfoReader.extensionOf(name, false).toLowerCase(Locale.ROOT);
+        return switch (FileInfoReader.typeOf(extension, false)) {
+            case "Изображение", "Архив" -> true;
+            default -> STORED_EXTENSIONS.contains(extension);
+        };
+    }
+
+    private List<Blob> compressBatch(List<Item> batch) throws IOException {
+        List<Blob> blobs = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            byte[] raw = Files.readAllBytes(item.path());
+            if (raw.length != item.size()) throw new IOException("Файл изменился во время сжатия: " + item.path());
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+            if (raw.length == 0 || isPrecompressed(item)) {
+                blobs.add(new Blob(item, STORED, (int) crc.getValue(), raw, raw.length));
+                continue;
+            }
+            Chunk deflated = deflate(raw, 0, raw.length, 0, true);
+            blobs.add(deflated.length() < raw.length
+                    ? new Blob(item, DEFLATED, (int) crc.getValue(), deflated.data(), deflated.length())
+                    : new Blob(item, STORED, (int) crc.getValue(), raw, raw.length));
+        }
+        return blobs;
+    }
+
+    private Chunk compressChunk(Item item, long offset, int length, int method, boolean last) throws IOException {
+        int dictionary = method == DEFLATED ? (int) Math.min(DICTIONARY, offset) : 0;
+        byte[] raw = new byte[dictionary + length];
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        try (FileChannel channel = FileChannel.open(item.path(), StandardOpenOption.READ)) {
+            long position = offset - dictionary;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) throw new IOException("Файл изменился во время сжатия: " + item.path());
+                position += read;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw, dictionary, length);
+        if (method == STORED) {
+            return new Chunk(raw, length, length, (int) crc.getValue());
+        }
+        Chunk deflated = deflate(raw, dictionary, length, dictionary, last);
+        return new Chunk(deflated.data(), deflated.length(), length, (int) crc.getValue());
+    }
+
+    private Chunk deflate(byte[] raw, int offset, int length, int dictionary, boolean last) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionary > 0) deflater.setDictionary(raw, offset - dictionary, dictionary);
+        deflater.setInput(raw, offset, length);
+        byte[] out = new byte[Math.max(64, length + (length >> 6) + 64)];
+        int written = 0;
+        if (last) deflater.finish();
+        while (true) {
+            if (written == out.length) out = Arrays.copyOf(out, out.length * 2);
+            int n = deflater.deflate(out, written, out.length - written, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            written += n;
+            if (last ? deflater.finished() : written < out.length && deflater.needsInput()) break;
+        }
+        return new Chunk(out, written, length, 0);
+    }
+
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    static int crc32Combine(int crc1, int crc2, long length2) {
+        if (length2 <= 0) return crc1;
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2Square(even, odd);
+        gf2Square(odd, even);
+        long c1 = crc1 & 0xFFFFFFFFL;
+        do {
+            gf2Square(even, odd);
+            if ((length2 & 1) != 0) c1 = gf2Times(even, c1);
+            length2 >>= 1;
+            if (length2 == 0) break;
+            gf2Square(odd, even);
+            if ((length2 & 1) != 0) c1 = gf2Times(odd, c1);
+            length2 >>= 1;
+        } while (length2 != 0);
+        return (int) (c1 ^ (crc2 & 0xFFFFFFFFL));
+    }
+
+    private static long gf2Times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) sum ^= matrix[i];
+        }
+        return sum;
+    }
+
+    private static void gf2Square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2Times(matrix, matrix[n]);
+        }
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final List<CentralEntry> central = new ArrayList<>();
+        private long position = 0;
+        private long originalBytes = 0;
+        private long headerOffset;
+        private boolean headerZip64;
+        private int headerNameLength;
+        private int crc;
+        private long compressed;
+        private long raw;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(Unit unit, ProgressListener listener) throws IOException {
+            Object value = unit.future() != null ? await(unit.future()) : null;
+            if (value == null) {
+                Item item = unit.item();
+                long offset = writeLocalHeader(item, STORED, 0, 0, 0, false);
+                central.add(new CentralEntry(item.name(), STORED, dosTime(item.modified()), 0, 0, 0, offset, true));
+            } else if (value instanceof List<?> blobs) {
+                for (Object element : blobs) {
+                    Blob blob = (Blob) element;
+                    long offset = writeLocalHeader(blob.item(), blob.method(), blob.crc(), blob.length(), blob.item().size(), false);
+                    put(blob.data(), blob.length());
+                    central.add(new CentralEntry(blob.item().name(), blob.method(), dosTime(blob.item().modified()),
+                            blob.crc(), blob.length(), blob.item().size(), offset, false));
+                    originalBytes += blob.item().size();
+                    listener.bytesProcessed(blob.item().size());
+                    listener.fileProcessed(blob.item().path());
+                }
+            } else if (value instanceof Chunk chunk) {
+                Item item = unit.item();
+                if (unit.first()) {
+                    headerZip64 = item.size() >= ZIP64_LOCAL_THRESHOLD;
+                    headerNameLength = item.name().length;
+                    headerOffset = writeLocalHeader(item, unit.method(), 0, 0, 0, headerZip64);
+                    crc = 0;
+                    compressed = 0;
+                    raw = 0;
+                }
+                put(chunk.data(), chunk.length());
+                crc = crc32Combine(crc, chunk.crc(), chunk.rawLength());
+                compressed += chunk.length();
+                raw += chunk.rawLength();
+                originalBytes += chunk.rawLength();
+                listener.bytesProcessed(chunk.rawLength());
+                if (unit.last()) {
+                    patchLocalHeader();
+                    central.add(new CentralEntry(item.name(), unit.method(), dosTime(item.modified()), crc, compressed,
+                            raw, headerOffset, false));
+                    listener.fileProcessed(item.path());
+                }
+            }
+        }
+
+        private static Object await(Future<?> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+                throw new IOException(e.getCause());
+            }
+        }
+
+        private long writeLocalHeader(Item item, int method, int crc, long compressedSize, long size, boolean zip64)
+                throws IOException {
+            long offset = position + buffer.position();
+            ensure(30 + item.name().length + 20);
+            buffer.putInt(0x04034b50);
+            buffer.putShort((short) (zip64 ? 45 : 20));
+            buffer.putShort((short) UTF8_FLAG);
+            buffer.putShort((short) method);
+            buffer.putInt(dosTime(item.modified()));
+            buffer.putInt(crc);
+            buffer.putInt(zip64 ? -1 : (int) compressedSize);
+            buffer.putInt(zip64 ? -1 : (int) size);
+            buffer.putShort((short) item.name().length);
+            buffer.putShort((short) (zip64 ? 20 : 0));
+            buffer.put(item.name());
+            if (zip64) {
+                buffer.putShort((short) 0x0001);
+                buffer.putShort((short) 16);
+                buffer.putLong(size);
+                buffer.putLong(compressedSize);
+            }
+            return offset;
+        }
+
+        private void patchLocalHeader() throws IOException {
+            flush();
+            if (!headerZip64 && (compressed >= ZIP64_LIMIT || raw >= ZIP64_LIMIT)) {
+                throw new IOException("Размер записи превысил ожидаемый");
+            }
+            ByteBuffer patch = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            patch.putInt(crc);
+            patch.putInt(headerZip64 ? -1 : (int) compressed);
+            patch.putInt(headerZip64 ? -1 : (int) raw);
+            writeAt(patch.flip(), headerOffset + 14);
+            if (headerZip64) {
+                ByteBuffer sizes = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                sizes.putLong(raw);
+                sizes.putLong(compressed);
+                writeAt(sizes.flip(), headerOffset + 30 + headerNameLength + 4);
+            }
+        }
+
+        private void writeAt(ByteBuffer data, long offset) throws IOException {
+            while (data.hasRemaining()) {
+                offset += channel.write(data, offset);
+            }
+        }
+
+        void finish() throws IOException {
+            long centralStart = position + buffer.position();
+            boolean anyZip64 = false;
+            for (CentralEntry entry : central) {
+                boolean bigSize = entry.size() >= ZIP64_LIMIT;
+                boolean bigCompressed = entry.compressedSize() >= ZIP64_LIMIT;
+                boolean bigOffset = entry.offset() >= ZIP64_LIMIT;
+                int extra = (bigSize ? 8 : 0) + (bigCompressed ? 8 : 0) + (bigOffset ? 8 : 0);
+                boolean zip64 = extra > 0;
+                anyZip64 |= zip64;
+                ensure(46 + entry.name().length + (zip64 ? extra + 4 : 0));
+                buffer.putInt(0x02014b50);
+                buffer.putShort((short) (zip64 ? 45 : 20));
+                buffer.putShort((short) (zip64 ? 45 : 20));
+                buffer.putShort((short) UTF8_FLAG);
+                buffer.putShort((short) entry.method());
+                buffer.putInt(entry.dosTime());
+                buffer.putInt(entry.crc());
+                buffer.putInt(bigCompressed ? -1 : (int) entry.compressedSize());
+                buffer.putInt(bigSize ? -1 : (int) entry.size());
+                buffer.putShort((short) entry.name().length);
+                buffer.putShort((short) (zip64 ? extra + 4 : 0));
+                buffer.putShort((short) 0);
+                buffer.putShort((short) 0);
+                buffer.putShort((short) 0);
+                buffer.putInt(entry.directory() ? 0x10 : 0);
+                buffer.putInt(bigOffset ? -1 : (int) entry.offset());
+                buffer.put(entry.name());
+                if (zip64) {
+                    buffer.putShort((short) 0x0001);
+                    buffer.putShort((short) extra);
+                    if (bigSize) buffer.putLong(entry.size());
+                    if (bigCompressed) buffer.putLong(entry.compressedSize());
+                    if (bigOffset) buffer.putLong(entry.offset());
+                }
+            }
+            long centralEnd = position + buffer.position();
+            long centralSize = centralEnd - centralStart;
+            boolean zip64End = anyZip64 || central.size() >= 0xFFFF || centralStart >= ZIP64_LIMIT
+                    || centralSize >= ZIP64_LIMIT;
+            ensure(56 + 20 + 22);
+            if (zip64End) {
+                buffer.putInt(0x06064b50);
+                buffer.putLong(44);
+                buffer.putShort((short) 45);
+                buffer.putShort((short) 45);
+                buffer.putInt(0);
+                buffer.putInt(0);
+                buffer.putLong(central.size());
+                buffer.putLong(central.size());
+                buffer.putLong(centralSize);
+                buffer.putLong(centralStart);
+                buffer.putInt(0x07064b50);
+                buffer.putInt(0);
+                buffer.putLong(centralEnd);
+                buffer.putInt(1);
+            }
+            buffer.putInt(0x06054b50);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) (zip64End ? 0xFFFF : central.size()));
+            buffer.putShort((short) (zip64End ? 0xFFFF : central.size()));
+            buffer.putInt(zip64End ? -1 : (int) centralSize);
+            buffer.putInt(zip64End ? -1 : (int) centralStart);
+            buffer.putShort((short) 0);
+            flush();
+        }
+
+        private void put(byte[] data, int length) throws IOException {
+            int offset = 0;
+            while (offset < length) {
+                if (!buffer.hasRemaining()) flush();
+                int n = Math.min(buffer.remaining(), length - offset);
+                buffer.put(data, offset, n);
+                offset += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
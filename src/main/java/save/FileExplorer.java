@@ -1,5 +1,9 @@
 package save;
 
+import org.warm4ik.lab.DirectorySize;
+import org.warm4ik.lab.DirectorySizeCalculator;
+import org.warm4ik.lab.SizeScan;
+
 import javax.swing.*;
 import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeExpansionListener;
@@ -15,6 +19,8 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class FileExplorer extends JFrame {
     private JTree tree;
@@ -23,6 +29,8 @@ public class FileExplorer extends JFrame {
     private File clipboardFile = null;
     private File clipboardSourceDir = null;
     private boolean cutOperation = false;
+    private final DirectorySizeCalculator sizeCalculator = new DirectorySizeCalculator();
+    private SizeScan activeSizeScan = null;
 
     public FileExplorer() {
         super("Проводник");
@@ -165,16 +173,30 @@ public class FileExplorer extends JFrame {
             addSizeInfo(info, file.length());
             showInfoDialog(info.toString(), "Информация о файле");
         } else {
-            new SwingWorker<Long, Void>() {
+            new SwingWorker<DirectorySize, DirectorySize>() {
+                private final SizeScan scan = startSizeScan(file, this::publish);
+
                 @Override
-                protected Long doInBackground() {
-                    return calculateSizeRecursive(file);
+                protected DirectorySize doInBackground() {
+                    return scan.await();
+                }
+
+                @Override
+                protected void process(List<DirectorySize> chunks) {
+                    DirectorySize partial = chunks.get(chunks.size() - 1);
+                    setTitle(String.format("Проводник — подсчет: %d файлов, %d папок, %.2f МБ",
+                            partial.files(), partial.directories(), partial.bytes() / (1024.0 * 1024.0)));
                 }
 
                 @Override
                 protected void done() {
+                    setTitle("Проводник");
+                    if (activeSizeScan == scan) {
+                        activeSizeScan = null;
+                    }
+                    if (scan.isCancelled()) return;
                     try {
-                        addSizeInfo(info, get());
+                        addSizeInfo(info, get().bytes());
                         showInfoDialog(info.toString(), "Информация о папке");
                     } catch (Exception ex) {
                         showErrorDialog("Ошибка расчета размера");
@@ -184,6 +206,14 @@ public class FileExplorer extends JFrame {
         }
     }
 
+    private SizeScan startSizeScan(File file, Consumer<DirectorySize> listener) {
+        if (activeSizeScan != null) {
+            activeSizeScan.cancel();
+        }
+        activeSizeScan = sizeCalculator.start(file.toPath(), listener);
+        return activeSizeScan;
+    }
+
     private void addSizeInfo(StringBuilder info, long bytes) {
         double mb = bytes / (1024.0 * 1024.0);
         info.append("4. Размер: ")
@@ -411,19 +441,6 @@ public class FileExplorer extends JFrame {
         });
     }
 
-    private long calculateSizeRecursive(File file) {
-        if (file.isFile()) return file.length();
-
-        long size = 0;
-        File[] children = file.listFiles();
-        if (children != null) {
-            for (File child : children) {
-                size += calculateSizeRecursive(child);
-            }
-        }
-        return size;
-    }
-
     private void refreshNode(File file) {
         DefaultMutableTreeNode node = findNodeByFile(file);
         if (node != null) {